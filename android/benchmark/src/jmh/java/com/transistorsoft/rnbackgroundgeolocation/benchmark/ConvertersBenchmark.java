@@ -0,0 +1,113 @@
+package com.transistorsoft.rnbackgroundgeolocation.benchmark;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.transistorsoft.rnbackgroundgeolocation.BridgeConverter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every BridgeConverter direction, for each payload shape:
+ *
+ *   SDK -> JS:  mapToWritableMap / iterableToWritableArray (events, #toMap results), jsonToMap / convertJsonToArray (stored records).
+ *   JS -> SDK:  mapToJson / arrayToJson (#ready / #setConfig / #addGeofences arguments).
+ *
+ * Array benchmarks marshal #ARRAY_SIZE copies of the payload.  Run with -prof gc for allocation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvertersBenchmark {
+    private static final int ARRAY_SIZE = 100;
+
+    @Param({"location", "geofence", "config"})
+    String payload;
+
+    private JSONObject mJson;
+    private JSONArray mJsonArray;
+    private Map<String, Object> mMap;
+    private Map<String, Object> mList;
+    private ReadableMap mReadableMap;
+    private ReadableArray mReadableArray;
+
+    @Setup
+    public void setup() throws JSONException {
+        mJsonArray = new JSONArray();
+        for (int n = 0; n < ARRAY_SIZE; n++) {
+            mJsonArray.put(json(n));
+        }
+        mJson = mJsonArray.getJSONObject(0);
+        mMap = Payloads.toMap(mJson);
+        // iterableToWritableArray is package-private:  reach it through a single-key map, as #getGeofences results do.
+        List<Object> list = Payloads.toList(mJsonArray);
+        mList = Collections.singletonMap("records", list);
+        mReadableMap = BridgeConverter.jsonToMap(mJson);
+        mReadableArray = BridgeConverter.convertJsonToArray(mJsonArray);
+    }
+
+    private JSONObject json(int n) throws JSONException {
+        switch (payload) {
+            case "location":
+                return Payloads.locationJson(n);
+            case "geofence":
+                return Payloads.geofenceJson(n);
+            case "config":
+                return Payloads.configJson();
+            default:
+                throw new IllegalArgumentException("Unknown payload: " + payload);
+        }
+    }
+
+    @Benchmark
+    public WritableMap mapToWritableMap() {
+        return BridgeConverter.mapToWritableMap(mMap);
+    }
+
+    @Benchmark
+    public WritableMap iterableToWritableArray() {
+        return BridgeConverter.mapToWritableMap(mList);
+    }
+
+    @Benchmark
+    public WritableMap jsonToMap() throws JSONException {
+        return BridgeConverter.jsonToMap(mJson);
+    }
+
+    @Benchmark
+    public WritableArray convertJsonToArray() throws JSONException {
+        return BridgeConverter.convertJsonToArray(mJsonArray);
+    }
+
+    @Benchmark
+    public JSONObject mapToJson() {
+        return BridgeConverter.mapToJson(mReadableMap);
+    }
+
+    @Benchmark
+    public JSONArray arrayToJson() throws JSONException {
+        return BridgeConverter.arrayToJson(mReadableArray);
+    }
+}
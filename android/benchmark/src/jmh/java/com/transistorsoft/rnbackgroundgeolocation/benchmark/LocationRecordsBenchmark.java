@@ -0,0 +1,59 @@
+package com.transistorsoft.rnbackgroundgeolocation.benchmark;
+
+import com.facebook.react.bridge.WritableArray;
+import com.transistorsoft.locationmanager.data.LocationModel;
+import com.transistorsoft.rnbackgroundgeolocation.BridgeConverter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * #getLocations / #sync marshalling of a 10k-record store:  the former JSONArray intermediate vs #locationsToWritableArray.
+ * Both are dominated by the per-record #jsonToMap, so expect them within noise of each other.
+ * Run with -prof gc to compare allocation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationRecordsBenchmark {
+    @Param({"10000"})
+    int records;
+
+    private List<LocationModel> mStore;
+
+    @Setup
+    public void setup() throws JSONException {
+        mStore = Payloads.locationRecords(records);
+    }
+
+    @Benchmark
+    public WritableArray jsonArrayIntermediate() throws JSONException {
+        JSONArray data = new JSONArray();
+        for (LocationModel location : mStore) {
+            data.put(location.json);
+        }
+        return BridgeConverter.convertJsonToArray(data);
+    }
+
+    @Benchmark
+    public WritableArray direct() throws JSONException {
+        return BridgeConverter.locationsToWritableArray(mStore);
+    }
+}
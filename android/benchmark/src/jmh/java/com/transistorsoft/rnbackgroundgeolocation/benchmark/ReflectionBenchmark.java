@@ -0,0 +1,74 @@
+package com.transistorsoft.rnbackgroundgeolocation.benchmark;
+
+import com.transistorsoft.rnbackgroundgeolocation.CachedMethod;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event reflective overhead of HeadlessTaskManager#getReactContext under the new architecture:
+ * bridgeless-flag + Application#getReactHost + ReactHost#getCurrentReactContext, looked up on every call vs cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReflectionBenchmark {
+    private static final CachedMethod GET_REACT_HOST = new CachedMethod("getReactHost");
+    private static final CachedMethod GET_CURRENT_REACT_CONTEXT = new CachedMethod("getCurrentReactContext");
+
+    public static class ReactContext {}
+
+    public static class ReactHost {
+        private final ReactContext mReactContext = new ReactContext();
+        public ReactContext getCurrentReactContext() { return mReactContext; }
+    }
+
+    public static class Application {
+        private final ReactHost mReactHost = new ReactHost();
+        public ReactHost getReactHost() { return mReactHost; }
+    }
+
+    private final Application mApplication = new Application();
+    private volatile Boolean mIsBridgelessEnabled;
+
+    @Benchmark
+    public Object uncached() throws Exception {
+        Class<?> entryPoint = Class.forName("com.facebook.react.defaults.DefaultNewArchitectureEntryPoint");
+        Method bridgelessEnabled = entryPoint.getMethod("getBridgelessEnabled");
+        if (bridgelessEnabled.invoke(null) != Boolean.TRUE) {
+            return null;
+        }
+        Method getReactHost = mApplication.getClass().getMethod("getReactHost");
+        Object reactHost = getReactHost.invoke(mApplication);
+        Method getCurrentReactContext = reactHost.getClass().getMethod("getCurrentReactContext");
+        return getCurrentReactContext.invoke(reactHost);
+    }
+
+    @Benchmark
+    public Object cached() throws Exception {
+        Boolean enabled = mIsBridgelessEnabled;
+        if (enabled == null) {
+            Class<?> entryPoint = Class.forName("com.facebook.react.defaults.DefaultNewArchitectureEntryPoint");
+            enabled = (entryPoint.getMethod("getBridgelessEnabled").invoke(null) == Boolean.TRUE);
+            mIsBridgelessEnabled = enabled;
+        }
+        if (!enabled) {
+            return null;
+        }
+        Object reactHost = GET_REACT_HOST.invoke(mApplication);
+        return GET_CURRENT_REACT_CONTEXT.invoke(reactHost);
+    }
+}
@@ -0,0 +1,61 @@
+package com.transistorsoft.rnbackgroundgeolocation.benchmark;
+
+import com.facebook.react.bridge.WritableMap;
+import com.transistorsoft.rnbackgroundgeolocation.BridgeConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polygon vertices through mapToWritableMap:  boxed List<List<Double>> vs primitive double[][].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerticesBenchmark {
+    @Param({"1000"})
+    int vertices;
+
+    private Map<String, Object> mBoxed;
+    private Map<String, Object> mPrimitive;
+
+    @Setup
+    public void setup() {
+        double[][] polygon = Payloads.polygon(0, vertices);
+        List<Object> boxed = new ArrayList<>(polygon.length);
+        for (double[] vertex : polygon) {
+            boxed.add(Arrays.asList(vertex[0], vertex[1]));
+        }
+        mBoxed = Collections.singletonMap("vertices", boxed);
+        mPrimitive = Collections.singletonMap("vertices", polygon);
+    }
+
+    @Benchmark
+    public WritableMap boxed() {
+        return BridgeConverter.mapToWritableMap(mBoxed);
+    }
+
+    @Benchmark
+    public WritableMap primitive() {
+        return BridgeConverter.mapToWritableMap(mPrimitive);
+    }
+}
@@ -0,0 +1,19 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+
+/**
+ * JVM stand-in for the RN bridge type of the same name (benchmark use only).
+ */
+public interface ReadableArray {
+    int size();
+    boolean isNull(int index);
+    boolean getBoolean(int index);
+    double getDouble(int index);
+    int getInt(int index);
+    String getString(int index);
+    ReadableArray getArray(int index);
+    ReadableMap getMap(int index);
+    ReadableType getType(int index);
+    ArrayList<Object> toArrayList();
+}
@@ -0,0 +1,9 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the RN bridge type of the same name (benchmark use only).
+ */
+public interface ReadableMapKeySetIterator {
+    boolean hasNextKey();
+    String nextKey();
+}
@@ -0,0 +1,13 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the RN bridge type of the same name (benchmark use only).
+ */
+public enum ReadableType {
+    Null,
+    Boolean,
+    Number,
+    String,
+    Map,
+    Array
+}
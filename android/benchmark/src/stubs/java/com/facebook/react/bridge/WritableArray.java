@@ -0,0 +1,14 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the RN bridge type of the same name (benchmark use only).
+ */
+public interface WritableArray extends ReadableArray {
+    void pushNull();
+    void pushBoolean(boolean value);
+    void pushDouble(double value);
+    void pushInt(int value);
+    void pushString(String value);
+    void pushArray(ReadableArray array);
+    void pushMap(ReadableMap map);
+}
@@ -0,0 +1,16 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the RN bridge type of the same name (benchmark use only).
+ */
+public interface WritableMap extends ReadableMap {
+    void putNull(String key);
+    void putBoolean(String key, boolean value);
+    void putDouble(String key, double value);
+    void putInt(String key, int value);
+    void putString(String key, String value);
+    void putArray(String key, ReadableArray value);
+    void putMap(String key, ReadableMap value);
+    void merge(ReadableMap source);
+    WritableMap copy();
+}
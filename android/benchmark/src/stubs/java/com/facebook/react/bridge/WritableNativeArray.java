@@ -0,0 +1,46 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+
+/**
+ * JVM stand-in for RN's WritableNativeArray (benchmark use only).  See WritableNativeMap.
+ */
+public class WritableNativeArray implements WritableArray {
+    private final ArrayList<Object> mValues = new ArrayList<>();
+
+    public WritableNativeArray() {}
+
+    static ReadableType typeOf(Object value) {
+        if (value == null) {
+            return ReadableType.Null;
+        } else if (value instanceof Boolean) {
+            return ReadableType.Boolean;
+        } else if (value instanceof Double) {
+            return ReadableType.Number;
+        } else if (value instanceof String) {
+            return ReadableType.String;
+        } else if (value instanceof ReadableMap) {
+            return ReadableType.Map;
+        }
+        return ReadableType.Array;
+    }
+
+    @Override public int size() { return mValues.size(); }
+    @Override public boolean isNull(int index) { return mValues.get(index) == null; }
+    @Override public boolean getBoolean(int index) { return (Boolean) mValues.get(index); }
+    @Override public double getDouble(int index) { return (Double) mValues.get(index); }
+    @Override public int getInt(int index) { return ((Double) mValues.get(index)).intValue(); }
+    @Override public String getString(int index) { return (String) mValues.get(index); }
+    @Override public ReadableArray getArray(int index) { return (ReadableArray) mValues.get(index); }
+    @Override public ReadableMap getMap(int index) { return (ReadableMap) mValues.get(index); }
+    @Override public ReadableType getType(int index) { return typeOf(mValues.get(index)); }
+    @Override public ArrayList<Object> toArrayList() { return new ArrayList<>(mValues); }
+
+    @Override public void pushNull() { mValues.add(null); }
+    @Override public void pushBoolean(boolean value) { mValues.add(value); }
+    @Override public void pushDouble(double value) { mValues.add(value); }
+    @Override public void pushInt(int value) { mValues.add((double) value); }
+    @Override public void pushString(String value) { mValues.add(value); }
+    @Override public void pushArray(ReadableArray array) { mValues.add(array); }
+    @Override public void pushMap(ReadableMap map) { mValues.add(map); }
+}
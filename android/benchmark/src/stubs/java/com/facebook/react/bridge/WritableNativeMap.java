@@ -0,0 +1,59 @@
+package com.facebook.react.bridge;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * JVM stand-in for RN's WritableNativeMap (benchmark use only).
+ *
+ * The real class hands each put across JNI into a native folly::dynamic.  Here values land in a HashMap, which keeps the
+ * Java-side cost of the converters (type dispatch, boxing, recursion, intermediate structures) measurable, but not the JNI cost.
+ * Numbers are stored as Double, as in the native map.
+ */
+public class WritableNativeMap implements WritableMap {
+    private final HashMap<String, Object> mValues = new HashMap<>();
+
+    public WritableNativeMap() {}
+
+    @Override public boolean hasKey(String name) { return mValues.containsKey(name); }
+    @Override public boolean isNull(String name) { return mValues.get(name) == null; }
+    @Override public boolean getBoolean(String name) { return (Boolean) mValues.get(name); }
+    @Override public double getDouble(String name) { return (Double) mValues.get(name); }
+    @Override public int getInt(String name) { return ((Double) mValues.get(name)).intValue(); }
+    @Override public String getString(String name) { return (String) mValues.get(name); }
+    @Override public ReadableArray getArray(String name) { return (ReadableArray) mValues.get(name); }
+    @Override public ReadableMap getMap(String name) { return (ReadableMap) mValues.get(name); }
+    @Override public ReadableType getType(String name) { return WritableNativeArray.typeOf(mValues.get(name)); }
+
+    @Override public ReadableMapKeySetIterator keySetIterator() {
+        final Iterator<String> iterator = mValues.keySet().iterator();
+        return new ReadableMapKeySetIterator() {
+            @Override public boolean hasNextKey() { return iterator.hasNext(); }
+            @Override public String nextKey() { return iterator.next(); }
+        };
+    }
+
+    @Override public HashMap<String, Object> toHashMap() { return new HashMap<>(mValues); }
+
+    @Override public void putNull(String key) { mValues.put(key, null); }
+    @Override public void putBoolean(String key, boolean value) { mValues.put(key, value); }
+    @Override public void putDouble(String key, double value) { mValues.put(key, value); }
+    @Override public void putInt(String key, int value) { mValues.put(key, (double) value); }
+    @Override public void putString(String key, String value) { mValues.put(key, value); }
+    @Override public void putArray(String key, ReadableArray value) { mValues.put(key, value); }
+    @Override public void putMap(String key, ReadableMap value) { mValues.put(key, value); }
+
+    @Override public void merge(ReadableMap source) {
+        ReadableMapKeySetIterator iterator = source.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            mValues.put(key, ((WritableNativeMap) source).mValues.get(key));
+        }
+    }
+
+    @Override public WritableMap copy() {
+        WritableNativeMap copy = new WritableNativeMap();
+        copy.merge(this);
+        return copy;
+    }
+}
@@ -0,0 +1,10 @@
+package com.facebook.react.defaults;
+
+/**
+ * JVM stand-in for the RN class of the same name (benchmark use only).
+ */
+public class DefaultNewArchitectureEntryPoint {
+    public static boolean getBridgelessEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,14 @@
+package com.transistorsoft.locationmanager.data;
+
+import org.json.JSONObject;
+
+/**
+ * JVM stand-in for the SDK's persisted location record (benchmark use only).
+ */
+public class LocationModel {
+    public JSONObject json;
+
+    public LocationModel(JSONObject json) {
+        this.json = json;
+    }
+}
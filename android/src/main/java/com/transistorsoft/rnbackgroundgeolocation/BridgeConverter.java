@@ -0,0 +1,295 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import com.transistorsoft.locationmanager.data.LocationModel;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversions between the SDK's data-structures (Map, JSONObject) and the RN bridge types (ReadableMap, WritableMap).
+ *
+ * These run for every event and every Promise result, so they're kept free of Android / SDK runtime dependencies
+ * (other than the plain LocationModel record) which lets android/benchmark exercise them on a plain JVM.
+ */
+public class BridgeConverter {
+
+    @SuppressWarnings("unchecked")
+    public static WritableMap mapToWritableMap(Map<String, ?> src) {
+        WritableMap map = new WritableNativeMap();
+        if (src == null) {
+            return map;
+        }
+
+        for (Map.Entry<String, ?> entry : src.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+
+            if (value == null) {
+                map.putNull(key);
+            } else if (value instanceof Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Integer) {
+                map.putInt(key, (Integer) value);
+            } else if (value instanceof Long) {
+                map.putDouble(key, ((Long) value).doubleValue());
+            } else if (value instanceof Float) {
+                map.putDouble(key, ((Float) value).doubleValue());
+            } else if (value instanceof Double) {
+                map.putDouble(key, (Double) value);
+            } else if (value instanceof String) {
+                map.putString(key, (String) value);
+            } else if (value instanceof Map) {
+                map.putMap(key, mapToWritableMap((Map<String, ?>) value));
+            } else if (value instanceof Iterable) {
+                map.putArray(key, iterableToWritableArray((Iterable<Object>) value));
+            } else if (value.getClass().isArray()) {
+                map.putArray(key, arrayToWritableArray(value));
+            } else {
+                map.putString(key, value.toString());
+            }
+        }
+
+        return map;
+    }
+
+    static WritableArray iterableToWritableArray(Iterable<Object> src) {
+        WritableArray array = new WritableNativeArray();
+        if (src == null) return array;
+
+        for (Object value : src) {
+            if (value == null) {
+                array.pushNull();
+            } else if (value instanceof Boolean) {
+                array.pushBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                array.pushInt((Integer) value);
+            } else if (value instanceof Long) {
+                array.pushDouble(((Long) value).doubleValue());
+            } else if (value instanceof Float) {
+                array.pushDouble(((Float) value).doubleValue());
+            } else if (value instanceof Double) {
+                array.pushDouble((Double) value);
+            } else if (value instanceof String) {
+                array.pushString((String) value);
+            } else if (value instanceof Map) {
+                array.pushMap(mapToWritableMap((Map<String, Object>) value));
+            } else if (value instanceof Iterable) {
+                array.pushArray(iterableToWritableArray((Iterable<Object>) value));
+            } else if (value.getClass().isArray()) {
+                array.pushArray(arrayToWritableArray(value));
+            } else {
+                array.pushString(value.toString());
+            }
+        }
+
+        return array;
+    }
+
+    /**
+     * Marshal a Java array.  Primitive arrays (eg: polygon vertices as double[][]) push their elements directly, without
+     * boxing each one through a List<Object>.
+     */
+    static WritableArray arrayToWritableArray(Object src) {
+        if (src instanceof double[]) {
+            return doublesToWritableArray((double[]) src);
+        } else if (src instanceof Object[]) {
+            Object[] values = (Object[]) src;
+            if (values instanceof double[][]) {
+                // Common case of coordinate-lists:  skip the per-element dispatch.
+                WritableArray array = new WritableNativeArray();
+                for (Object value : values) {
+                    if (value == null) {
+                        array.pushNull();
+                    } else {
+                        array.pushArray(doublesToWritableArray((double[]) value));
+                    }
+                }
+                return array;
+            }
+            return iterableToWritableArray(Arrays.asList(values));
+        }
+        WritableArray array = new WritableNativeArray();
+        if (src instanceof float[]) {
+            for (float value : (float[]) src) {
+                array.pushDouble(value);
+            }
+        } else if (src instanceof int[]) {
+            for (int value : (int[]) src) {
+                array.pushInt(value);
+            }
+        } else if (src instanceof long[]) {
+            for (long value : (long[]) src) {
+                array.pushDouble(value);
+            }
+        } else if (src instanceof short[]) {
+            for (short value : (short[]) src) {
+                array.pushInt(value);
+            }
+        } else if (src instanceof byte[]) {
+            for (byte value : (byte[]) src) {
+                array.pushInt(value);
+            }
+        } else if (src instanceof boolean[]) {
+            for (boolean value : (boolean[]) src) {
+                array.pushBoolean(value);
+            }
+        } else if (src instanceof char[]) {
+            for (char value : (char[]) src) {
+                array.pushString(String.valueOf(value));
+            }
+        }
+        return array;
+    }
+
+    private static WritableArray doublesToWritableArray(double[] src) {
+        WritableArray array = new WritableNativeArray();
+        for (double value : src) {
+            array.pushDouble(value);
+        }
+        return array;
+    }
+
+    public static WritableMap jsonToMap(JSONObject jsonObject) throws JSONException {
+        WritableMap map = new WritableNativeMap();
+        if (jsonObject == null) {
+            return map;
+        }
+
+        Iterator<String> iterator = jsonObject.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            Object value = jsonObject.get(key);
+            if (value instanceof JSONObject) {
+                map.putMap(key, jsonToMap((JSONObject) value));
+            } else if (value instanceof  JSONArray) {
+                map.putArray(key, convertJsonToArray((JSONArray) value));
+            } else if (value instanceof  Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value instanceof  Integer) {
+                map.putInt(key, (Integer) value);
+            } else if (value instanceof Long) {
+                map.putDouble(key, ((Long) value).doubleValue());
+            } else if (value instanceof  Double) {
+                map.putDouble(key, (Double) value);
+            } else if (value instanceof Float) {
+                map.putDouble(key, ((Float) value).doubleValue());
+            } else if (value instanceof String)  {
+                map.putString(key, (String) value);
+            } else {
+                map.putString(key, value.toString());
+            }
+        }
+        return map;
+    }
+
+    public static WritableArray convertJsonToArray(JSONArray jsonArray) throws JSONException {
+        WritableArray array = new WritableNativeArray();
+
+        for (int i = 0; i < jsonArray.length(); i++) {
+            Object value = jsonArray.get(i);
+            if (value instanceof JSONObject) {
+                array.pushMap(jsonToMap((JSONObject) value));
+            } else if (value instanceof  JSONArray) {
+                array.pushArray(convertJsonToArray((JSONArray) value));
+            } else if (value instanceof  Boolean) {
+                array.pushBoolean((Boolean) value);
+            } else if (value instanceof  Integer) {
+                array.pushInt((Integer) value);
+            } else if (value instanceof  Double) {
+                array.pushDouble((Double) value);
+            } else if (value instanceof String)  {
+                array.pushString((String) value);
+            } else {
+                array.pushString(value.toString());
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Marshal persisted location records (#getLocations, #getLocationsPage, #sync) into a bridge array, one #jsonToMap per
+     * record.  Costs the same as collecting them into a JSONArray for #convertJsonToArray:  the per-record JSON walk dominates.
+     */
+    public static WritableArray locationsToWritableArray(List<LocationModel> records) throws JSONException {
+        WritableArray array = new WritableNativeArray();
+        for (LocationModel location : records) {
+            array.pushMap(jsonToMap(location.json));
+        }
+        return array;
+    }
+
+    public static JSONObject mapToJson(ReadableMap map) {
+        ReadableMapKeySetIterator iterator = map.keySetIterator();
+        JSONObject json = new JSONObject();
+
+        try {
+            while (iterator.hasNextKey()) {
+                String key = iterator.nextKey();
+                switch (map.getType(key)) {
+                    case String:
+                        json.put(key, map.getString(key));
+                        break;
+                    case Boolean:
+                        json.put(key, map.getBoolean(key));
+                        break;
+                    case Number:
+                        json.put(key, map.getDouble(key));
+                        break;
+                    case Map:
+                        json.put(key, mapToJson(map.getMap(key)));
+                        break;
+                    case Array:
+                        json.put(key, arrayToJson(map.getArray(key)));
+                        break;
+
+                }
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return json;
+    }
+
+    public static JSONArray arrayToJson(ReadableArray readableArray) throws JSONException {
+        JSONArray jsonArray = new JSONArray();
+        for(int i=0; i < readableArray.size(); i++) {
+            ReadableType valueType = readableArray.getType(i);
+            switch (valueType){
+                case Null:
+                    jsonArray.put(JSONObject.NULL);
+                    break;
+                case Boolean:
+                    jsonArray.put(readableArray.getBoolean(i));
+                    break;
+                case Number:
+                    jsonArray.put(readableArray.getDouble(i));
+                    break;
+                case String:
+                    jsonArray.put(readableArray.getString(i));
+                    break;
+                case Map:
+                    jsonArray.put(mapToJson(readableArray.getMap(i)));
+                    break;
+                case Array:
+                    jsonArray.put(arrayToJson(readableArray.getArray(i)));
+                    break;
+            }
+        }
+        return jsonArray;
+    }
+}
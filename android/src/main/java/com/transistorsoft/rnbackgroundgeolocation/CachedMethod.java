@@ -0,0 +1,41 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A public method invoked by name via reflection, looked up once per target class rather than on every call.
+ *
+ * Used by HeadlessTaskManager for the ReactHost API, which must be reached reflectively to support both the old and
+ * new (bridgeless) architectures.  java.lang.invoke.MethodHandle would avoid the boxing of Method#invoke, but requires API 26.
+ */
+public final class CachedMethod {
+    private final String mName;
+    private final Class<?>[] mParameterTypes;
+    private volatile Resolved mResolved;
+
+    public CachedMethod(String name, Class<?>... parameterTypes) {
+        mName = name;
+        mParameterTypes = parameterTypes;
+    }
+
+    public Object invoke(Object target, Object... args) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        Class<?> targetClass = target.getClass();
+        Resolved resolved = mResolved;
+        if (resolved == null || resolved.targetClass != targetClass) {
+            resolved = new Resolved(targetClass, targetClass.getMethod(mName, mParameterTypes));
+            mResolved = resolved;
+        }
+        return resolved.method.invoke(target, args);
+    }
+
+    private static class Resolved {
+        final Class<?> targetClass;
+        final Method method;
+
+        Resolved(Class<?> targetClass, Method method) {
+            this.targetClass = targetClass;
+            this.method = method;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import com.transistorsoft.locationmanager.config.TSConfig;
+import com.transistorsoft.locationmanager.scheduler.ScheduleEvent;
+
+/**
+ * The small, fixed set of state fields delivered by schedule / boot / terminate events in place of the entire
+ * TSConfig#toMap when the "compactEvents" headless option is set (see HeadlessTask#configure):
+ *
+ *   {enabled, isMoving, trackingMode, schedulerEnabled}
+ *
+ * Of a schedule event, enabled and trackingMode are those of the ScheduleEvent:  the state applied by the schedule entry
+ * which fired (#write(TSConfig, ScheduleEvent)).
+ *
+ * Read straight from the TSConfig getters:  no intermediate Map and no generic conversion.
+ */
+final class CompactState {
+    private CompactState() {}
+
+    static WritableMap write(TSConfig config) {
+        WritableMap state = new WritableNativeMap();
+        state.putBoolean("enabled", Boolean.TRUE.equals(config.getEnabled()));
+        state.putBoolean("isMoving", Boolean.TRUE.equals(config.getIsMoving()));
+        Integer trackingMode = config.getTrackingMode();
+        state.putInt("trackingMode", (trackingMode != null) ? trackingMode : 1);
+        state.putBoolean("schedulerEnabled", Boolean.TRUE.equals(config.getSchedulerEnabled()));
+        return state;
+    }
+
+    static WritableMap write(TSConfig config, ScheduleEvent event) {
+        WritableMap state = write(config);
+        if (event != null) {
+            state.putBoolean("enabled", event.getEnabled());
+            state.putInt("trackingMode", event.getTrackingMode());
+        }
+        return state;
+    }
+}
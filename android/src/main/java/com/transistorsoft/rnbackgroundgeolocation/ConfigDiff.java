@@ -0,0 +1,63 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Detects which keys of a #setConfig update actually differ from the current config, so only those are applied
+ * (and nothing is persisted when none do).
+ *
+ * Values are compared as JSON:  numbers by value (JS delivers 10 as 10.0 where the config holds an Integer), objects
+ * key-by-key over the keys of the update (a nested update is merged, so keys it omits are unchanged), arrays element-wise.
+ */
+final class ConfigDiff {
+    private ConfigDiff() {}
+
+    /**
+     * The entries of update whose values differ from (or are absent in) current.
+     */
+    static JSONObject changes(JSONObject current, JSONObject update) throws JSONException {
+        JSONObject changes = new JSONObject();
+        Iterator<String> keys = update.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = update.get(key);
+            if (!current.has(key) || !isEqual(current.get(key), value)) {
+                changes.put(key, value);
+            }
+        }
+        return changes;
+    }
+
+    private static boolean isEqual(Object current, Object value) throws JSONException {
+        if (current == value) {
+            return true;
+        }
+        if (current == null || value == null || current == JSONObject.NULL || value == JSONObject.NULL) {
+            return false;
+        }
+        if (current instanceof Number && value instanceof Number) {
+            return ((Number) current).doubleValue() == ((Number) value).doubleValue();
+        }
+        if (current instanceof JSONObject && value instanceof JSONObject) {
+            return changes((JSONObject) current, (JSONObject) value).length() == 0;
+        }
+        if (current instanceof JSONArray && value instanceof JSONArray) {
+            JSONArray a = (JSONArray) current;
+            JSONArray b = (JSONArray) value;
+            if (a.length() != b.length()) {
+                return false;
+            }
+            for (int i = 0; i < a.length(); i++) {
+                if (!isEqual(a.get(i), b.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return current.equals(value);
+    }
+}
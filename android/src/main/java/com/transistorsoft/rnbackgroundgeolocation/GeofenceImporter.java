@@ -0,0 +1,533 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.transistorsoft.locationmanager.geofence.TSGeofence;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams geofences from a GeoJSON or CSV file into the SDK for #importGeofences, so that large geofence catalogues
+ * never cross the bridge.  The file is read one record at a time and added in batches of #BATCH_SIZE:  memory is
+ * bounded by a batch, however large the file.
+ *
+ * GeoJSON:  a FeatureCollection of Point (circular) or Polygon features.  The feature's properties supply
+ * identifier (else the feature id), radius (required for a Point), notifyOnEntry, notifyOnExit, notifyOnDwell and
+ * loiteringDelay;  the remaining properties become the geofence's extras.  Only a Polygon's exterior ring is used.
+ *
+ * CSV:  a header row naming the columns, of which identifier, latitude, longitude, radius, notifyOnEntry, notifyOnExit,
+ * notifyOnDwell, loiteringDelay and vertices (an encoded-polyline, see PolygonVertices) are geofence fields;  other
+ * columns become (String) extras.  Empty cells are ignored.  Fields may be quoted (RFC 4180).
+ *
+ * An invalid record is rejected alone;  a batch the SDK fails to add is rejected entirely.
+ */
+class GeofenceImporter {
+    static final String FORMAT_GEOJSON = "geojson";
+    static final String FORMAT_CSV = "csv";
+    static final int BATCH_SIZE = 500;
+    // Errors reported in the result;  the rest are only counted.
+    private static final int MAX_ERRORS = 100;
+
+    private static final String FIELD_IDENTIFIER = "identifier";
+    private static final String FIELD_LATITUDE = "latitude";
+    private static final String FIELD_LONGITUDE = "longitude";
+    private static final String FIELD_RADIUS = "radius";
+    private static final String FIELD_NOTIFY_ON_ENTRY = "notifyOnEntry";
+    private static final String FIELD_NOTIFY_ON_EXIT = "notifyOnExit";
+    private static final String FIELD_NOTIFY_ON_DWELL = "notifyOnDwell";
+    private static final String FIELD_LOITERING_DELAY = "loiteringDelay";
+    private static final String FIELD_VERTICES = "vertices";
+
+    /**
+     * Adds a batch of geofences, blocking until the SDK has done so.
+     */
+    interface BatchWriter {
+        /**
+         * @return null on success, else the error.
+         */
+        String write(List<TSGeofence> geofences);
+    }
+
+    private final BatchWriter mWriter;
+    private final List<TSGeofence> mBatch = new ArrayList<>(BATCH_SIZE);
+    private final List<Record> mBatchRecords = new ArrayList<>(BATCH_SIZE);
+    private final JSONArray mErrors = new JSONArray();
+    private int mTotal = 0;
+    private int mAccepted = 0;
+    private int mRejected = 0;
+
+    GeofenceImporter(BatchWriter writer) {
+        mWriter = writer;
+    }
+
+    /**
+     * The format of a file by its extension:  #FORMAT_CSV for ".csv", else #FORMAT_GEOJSON.
+     */
+    static String formatOf(String path) {
+        return path.toLowerCase(Locale.US).endsWith(".csv") ? FORMAT_CSV : FORMAT_GEOJSON;
+    }
+
+    /**
+     * Import every record of reader.
+     * @return {total, accepted, rejected, errors: [{index, identifier, error}]}
+     * @throws IllegalArgumentException for an unknown format or a file not in that format.
+     */
+    JSONObject run(Reader reader, String format) throws IOException, JSONException {
+        if (FORMAT_GEOJSON.equalsIgnoreCase(format)) {
+            importGeoJson(new JsonReader(reader));
+        } else if (FORMAT_CSV.equalsIgnoreCase(format)) {
+            importCsv(new BufferedReader(reader));
+        } else {
+            throw new IllegalArgumentException("Unknown geofence import format: " + format);
+        }
+        flush();
+
+        JSONObject result = new JSONObject();
+        result.put("total", mTotal);
+        result.put("accepted", mAccepted);
+        result.put("rejected", mRejected);
+        result.put("errors", mErrors);
+        return result;
+    }
+
+    /**
+     * A geofence read from the file, before it's built.
+     */
+    private static class Record {
+        final int index;
+        String identifier;
+        Double latitude;
+        Double longitude;
+        Double radius;
+        Boolean notifyOnEntry;
+        Boolean notifyOnExit;
+        Boolean notifyOnDwell;
+        Integer loiteringDelay;
+        double[] vertices;
+        JSONObject extras;
+        String error;
+
+        Record(int index) {
+            this.index = index;
+        }
+    }
+
+    private void add(Record record) throws JSONException {
+        if (record.error == null && record.identifier == null) {
+            record.error = "identifier required";
+        }
+        if (record.error == null) {
+            try {
+                mBatch.add(build(record));
+                mBatchRecords.add(record);
+            } catch (TSGeofence.Exception | RuntimeException e) {
+                record.error = e.getMessage();
+            }
+        }
+        if (record.error != null) {
+            reject(record, record.error);
+        }
+        if (mBatch.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() throws JSONException {
+        if (mBatch.isEmpty()) {
+            return;
+        }
+        String error = mWriter.write(mBatch);
+        if (error == null) {
+            mAccepted += mBatch.size();
+        } else {
+            for (Record record : mBatchRecords) {
+                reject(record, error);
+            }
+        }
+        mBatch.clear();
+        mBatchRecords.clear();
+    }
+
+    private void reject(Record record, String error) throws JSONException {
+        mRejected++;
+        if (mErrors.length() < MAX_ERRORS) {
+            JSONObject json = new JSONObject();
+            json.put("index", record.index);
+            json.put("identifier", (record.identifier != null) ? record.identifier : JSONObject.NULL);
+            json.put("error", error);
+            mErrors.put(json);
+        }
+    }
+
+    private static TSGeofence build(Record record) throws TSGeofence.Exception {
+        TSGeofence.Builder builder = new TSGeofence.Builder().setIdentifier(record.identifier);
+        if (record.vertices != null) {
+            builder.setVertices(PolygonVertices.of(record.vertices).asList());
+        } else {
+            if (record.latitude == null || record.longitude == null || record.radius == null) {
+                throw new IllegalArgumentException("latitude, longitude and radius required");
+            }
+            builder.setLatitude(record.latitude).setLongitude(record.longitude).setRadius(record.radius.floatValue());
+        }
+        if (record.notifyOnEntry != null)  { builder.setNotifyOnEntry(record.notifyOnEntry); }
+        if (record.notifyOnExit != null)   { builder.setNotifyOnExit(record.notifyOnExit); }
+        if (record.notifyOnDwell != null)  { builder.setNotifyOnDwell(record.notifyOnDwell); }
+        if (record.loiteringDelay != null) { builder.setLoiteringDelay(record.loiteringDelay); }
+        if (record.extras != null && record.extras.length() > 0) { builder.setExtras(record.extras); }
+        return builder.build();
+    }
+
+    // GeoJSON
+
+    private void importGeoJson(JsonReader reader) throws IOException, JSONException {
+        boolean hasFeatures = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("features".equals(reader.nextName())) {
+                hasFeatures = true;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    add(readFeature(reader, mTotal++));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!hasFeatures) {
+            throw new IllegalArgumentException("GeoJSON must be a FeatureCollection");
+        }
+    }
+
+    /**
+     * Read one feature.  Its JSON is consumed in full whatever it holds, so that an invalid feature is rejected alone
+     * (Record#error) rather than ending the import.
+     */
+    private static Record readFeature(JsonReader reader, int index) throws IOException, JSONException {
+        Record record = new Record(index);
+        String id = null;
+        String type = null;
+        Positions positions = null;
+        int depth = 0;
+        JSONObject properties = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if ("id".equals(name)) {
+                id = readScalar(reader);
+            } else if ("properties".equals(name)) {
+                Object value = readValue(reader);
+                if (value instanceof JSONObject) {
+                    properties = (JSONObject) value;
+                }
+            } else if ("geometry".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    if ("type".equals(key)) {
+                        type = readScalar(reader);
+                    } else if ("coordinates".equals(key) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        positions = new Positions();
+                        depth = readCoordinates(reader, positions, 1);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        record.extras = new JSONObject();
+        if (properties != null) {
+            Iterator<String> keys = properties.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object value = properties.opt(key);
+                try {
+                    setField(record, key, value);
+                } catch (RuntimeException e) {
+                    record.error = "Invalid " + key + ": " + value;
+                }
+            }
+        }
+        if (record.identifier == null) {
+            record.identifier = id;
+        }
+        if (record.error != null) {
+            return record;
+        }
+        if (positions != null && positions.error != null) {
+            record.error = positions.error;
+        } else if ("Point".equals(type) && positions != null && depth == 1 && positions.size == 2) {
+            record.latitude = positions.values[0];
+            record.longitude = positions.values[1];
+        } else if ("Polygon".equals(type) && positions != null && depth == 3) {
+            record.vertices = positions.toRing();
+        } else {
+            record.error = "Unsupported geometry: " + type + " (Point or Polygon required)";
+        }
+        return record;
+    }
+
+    /**
+     * Read a GeoJSON coordinates array into positions as [lat, lng, ...] (GeoJSON positions are [lng, lat, alt?]).
+     * Of a Polygon, only the first (exterior) ring is read.
+     * @return the nesting depth of the positions:  1 for a Point, 3 for a Polygon.
+     */
+    private static int readCoordinates(JsonReader reader, Positions positions, int depth) throws IOException {
+        int positionDepth = depth;
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.NUMBER) {
+            double lng = reader.nextDouble();
+            if (reader.hasNext() && reader.peek() == JsonToken.NUMBER) {
+                positions.add(reader.nextDouble(), lng);
+            } else {
+                positions.error = "Invalid position:  [longitude, latitude] required";
+            }
+        } else {
+            boolean first = true;
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    positions.error = "Invalid coordinates:  array of positions required";
+                    reader.skipValue();
+                } else if (!first && depth == 1 && positionDepth == 3) {
+                    // Polygon interior ring (hole).
+                    reader.skipValue();
+                } else {
+                    int childDepth = readCoordinates(reader, positions, depth + 1);
+                    if (first) {
+                        positionDepth = childDepth;
+                    }
+                }
+                first = false;
+            }
+        }
+        while (reader.hasNext()) {
+            // Altitude.
+            reader.skipValue();
+        }
+        reader.endArray();
+        return positionDepth;
+    }
+
+    /**
+     * A string or number value as a String, else null (any other value is skipped).
+     */
+    private static String readScalar(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                JSONObject object = new JSONObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    object.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return object;
+            case BEGIN_ARRAY:
+                JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.put(readValue(reader));
+                }
+                reader.endArray();
+                return array;
+            case NUMBER:
+                String number = reader.nextString();
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(number);
+                }
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * Flat [lat, lng, ...] coordinates, grown as read.
+     */
+    private static class Positions {
+        double[] values = new double[64];
+        int size = 0;
+        // Set by #readCoordinates for a malformed position.
+        String error;
+
+        void add(double lat, double lng) {
+            if (size + 2 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = lat;
+            values[size++] = lng;
+        }
+
+        // GeoJSON rings repeat their first position last:  drop it.
+        double[] toRing() {
+            int length = size;
+            if (length >= 4 && values[0] == values[length - 2] && values[1] == values[length - 1]) {
+                length -= 2;
+            }
+            return Arrays.copyOf(values, length);
+        }
+    }
+
+    // CSV
+
+    private void importCsv(BufferedReader reader) throws IOException, JSONException {
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            return;
+        }
+        if (!header.contains(FIELD_IDENTIFIER)) {
+            throw new IllegalArgumentException("CSV header must include '" + FIELD_IDENTIFIER + "'");
+        }
+        List<String> cells;
+        while ((cells = readCsvRecord(reader)) != null) {
+            if (cells.size() == 1 && cells.get(0).isEmpty()) {
+                // Blank line.
+                continue;
+            }
+            Record record = new Record(mTotal++);
+            record.extras = new JSONObject();
+            for (int i = 0; i < cells.size() && i < header.size(); i++) {
+                String cell = cells.get(i);
+                if (cell.isEmpty()) {
+                    continue;
+                }
+                try {
+                    setField(record, header.get(i), cell);
+                } catch (RuntimeException e) {
+                    record.error = "Invalid " + header.get(i) + ": " + cell;
+                }
+            }
+            add(record);
+        }
+    }
+
+    /**
+     * The next record's fields (RFC 4180:  a quoted field may hold commas, newlines and "" escaped quotes),
+     * or null at the end of the file.
+     */
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i >= line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // A quoted field continues onto the next line.
+                line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    // Fields
+
+    /**
+     * Apply a GeoJSON property or CSV cell to record:  a geofence field, else an extra.
+     */
+    private static void setField(Record record, String name, Object value) throws JSONException {
+        switch (name) {
+            case FIELD_IDENTIFIER:      record.identifier = (value != JSONObject.NULL) ? String.valueOf(value) : null; break;
+            case FIELD_LATITUDE:        record.latitude = toDouble(value); break;
+            case FIELD_LONGITUDE:       record.longitude = toDouble(value); break;
+            case FIELD_RADIUS:          record.radius = toDouble(value); break;
+            case FIELD_NOTIFY_ON_ENTRY: record.notifyOnEntry = toBoolean(value); break;
+            case FIELD_NOTIFY_ON_EXIT:  record.notifyOnExit = toBoolean(value); break;
+            case FIELD_NOTIFY_ON_DWELL: record.notifyOnDwell = toBoolean(value); break;
+            case FIELD_LOITERING_DELAY: record.loiteringDelay = (int) toDouble(value); break;
+            case FIELD_VERTICES:
+                if (value instanceof String) {
+                    record.vertices = PolygonVertices.decodePolyline((String) value);
+                    break;
+                }
+                // Not an encoded-polyline:  keep it as an extra.
+            default:                    record.extras.put(name, value);
+        }
+    }
+
+    private static double toDouble(Object value) {
+        return (value instanceof Number) ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        String string = value.toString();
+        if ("true".equalsIgnoreCase(string) || "1".equals(string)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(string) || "0".equals(string)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid boolean: " + string);
+    }
+}
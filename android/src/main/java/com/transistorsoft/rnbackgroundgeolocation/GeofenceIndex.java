@@ -0,0 +1,316 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only spatial index (an STR bulk-loaded R-tree) over stored geofences, for #queryGeofences:  only the geofences
+ * matching a region are marshalled to Javascript, rather than every geofence via #getGeofences.
+ *
+ * Each entry is indexed by its bounding-box:  the box enclosing its vertices (polygon geofences) or its circle.
+ * Polygons are prepared once, as primitive vertex and edge-slope arrays, for #hitTest:  the tree prunes to the few
+ * geofences whose box holds the point before any point-in-polygon test is made.
+ * Coordinates are degrees, distances metres.  Boxes are not split at the anti-meridian.
+ *
+ * Built in one pass from a snapshot of the stored geofences (see Builder):  the module discards the index whenever
+ * geofences are added or removed and rebuilds it at the next query.
+ */
+class GeofenceIndex<T> {
+    // Maximum children per node.
+    private static final int NODE_CAPACITY = 16;
+    static final double EARTH_RADIUS = 6371008.8;
+    private static final double METRES_PER_DEGREE = Math.PI * EARTH_RADIUS / 180;
+
+    private final List<Entry<T>> mEntries;
+    private final Node mRoot;
+
+    private GeofenceIndex(List<Entry<T>> entries) {
+        mEntries = entries;
+        mRoot = entries.isEmpty() ? null : pack(entries);
+    }
+
+    int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Entries whose bounding-box intersects the given box, in no particular order.  limit <= 0 is unlimited.
+     */
+    List<Entry<T>> queryBbox(double minLat, double minLng, double maxLat, double maxLng, int limit) {
+        List<Entry<T>> results = new ArrayList<>();
+        if (mRoot != null) {
+            search(mRoot, minLat, minLng, maxLat, maxLng, (limit > 0) ? limit : Integer.MAX_VALUE, results);
+        }
+        return results;
+    }
+
+    /**
+     * Entries within radius metres of the given point (see Entry#distanceFrom), nearest first.  limit <= 0 is unlimited.
+     */
+    List<Entry<T>> queryRadius(double latitude, double longitude, double radius, int limit) {
+        double dLat = radius / METRES_PER_DEGREE;
+        double dLng = dLat / Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+        List<Entry<T>> candidates = queryBbox(latitude - dLat, longitude - dLng, latitude + dLat, longitude + dLng, 0);
+
+        final double[] distances = new double[candidates.size()];
+        List<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Entry<T> entry = candidates.get(i);
+            distances[i] = entry.distanceFrom(latitude, longitude);
+            if (distances[i] <= radius) {
+                matches.add(i);
+            }
+        }
+        Collections.sort(matches, new Comparator<Integer>() {
+            @Override public int compare(Integer a, Integer b) {
+                return Double.compare(distances[a], distances[b]);
+            }
+        });
+        int count = (limit > 0) ? Math.min(limit, matches.size()) : matches.size();
+        List<Entry<T>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(candidates.get(matches.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * Entries containing the given point:  inside its polygon or, for a circular geofence, its circle.
+     */
+    List<Entry<T>> hitTest(double latitude, double longitude) {
+        List<Entry<T>> results = new ArrayList<>();
+        if (mRoot != null) {
+            hitTest(mRoot, latitude, longitude, results);
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void hitTest(Node node, double latitude, double longitude, List<Entry<T>> results) {
+        if (!node.contains(latitude, longitude)) {
+            return;
+        }
+        if (node.entries != null) {
+            for (Entry<?> entry : node.entries) {
+                if (entry.hitTest(latitude, longitude)) {
+                    results.add((Entry<T>) entry);
+                }
+            }
+            return;
+        }
+        for (Node child : node.children) {
+            hitTest(child, latitude, longitude, results);
+        }
+    }
+
+    /**
+     * Haversine distance (metres).
+     */
+    static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean search(Node node, double minLat, double minLng, double maxLat, double maxLng, int limit, List<Entry<T>> results) {
+        if (!node.intersects(minLat, minLng, maxLat, maxLng)) {
+            return true;
+        }
+        if (node.entries != null) {
+            for (Entry<?> entry : node.entries) {
+                if (entry.intersects(minLat, minLng, maxLat, maxLng)) {
+                    results.add((Entry<T>) entry);
+                    if (results.size() >= limit) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        for (Node child : node.children) {
+            if (!search(child, minLat, minLng, maxLat, maxLng, limit, results)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sort-Tile-Recursive packing:  sort by longitude into vertical slices, each sorted by latitude into full nodes,
+     * then pack those nodes the same way until a single root remains.
+     */
+    @SuppressWarnings("unchecked")
+    private Node pack(List<Entry<T>> entries) {
+        List<Box> boxes = new ArrayList<Box>(entries);
+        List<Node> level = new ArrayList<>();
+        boolean leaves = true;
+        do {
+            level = new ArrayList<>();
+            int nodeCount = (int) Math.ceil(boxes.size() / (double) NODE_CAPACITY);
+            int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+            int sliceSize = sliceCount * NODE_CAPACITY;
+
+            Collections.sort(boxes, BY_LONGITUDE);
+            for (int s = 0; s < boxes.size(); s += sliceSize) {
+                List<Box> slice = new ArrayList<>(boxes.subList(s, Math.min(boxes.size(), s + sliceSize)));
+                Collections.sort(slice, BY_LATITUDE);
+                for (int n = 0; n < slice.size(); n += NODE_CAPACITY) {
+                    List<Box> group = slice.subList(n, Math.min(slice.size(), n + NODE_CAPACITY));
+                    level.add(leaves ? Node.leaf(group.toArray(new Entry[0])) : Node.branch(group.toArray(new Node[0])));
+                }
+            }
+            boxes = new ArrayList<Box>(level);
+            leaves = false;
+        } while (level.size() > 1);
+        return level.get(0);
+    }
+
+    private static final Comparator<Box> BY_LONGITUDE = new Comparator<Box>() {
+        @Override public int compare(Box a, Box b) {
+            return Double.compare(a.minLng + a.maxLng, b.minLng + b.maxLng);
+        }
+    };
+
+    private static final Comparator<Box> BY_LATITUDE = new Comparator<Box>() {
+        @Override public int compare(Box a, Box b) {
+            return Double.compare(a.minLat + a.maxLat, b.minLat + b.maxLat);
+        }
+    };
+
+    private static class Box {
+        double minLat = Double.POSITIVE_INFINITY;
+        double minLng = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+
+        void extend(double lat, double lng) {
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLng = Math.min(minLng, lng);
+            maxLng = Math.max(maxLng, lng);
+        }
+
+        void extend(Box box) {
+            extend(box.minLat, box.minLng);
+            extend(box.maxLat, box.maxLng);
+        }
+
+        boolean intersects(double minLat, double minLng, double maxLat, double maxLng) {
+            return this.minLat <= maxLat && this.maxLat >= minLat && this.minLng <= maxLng && this.maxLng >= minLng;
+        }
+
+        boolean contains(double lat, double lng) {
+            return lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng;
+        }
+    }
+
+    private static class Node extends Box {
+        Node[] children;
+        Entry<?>[] entries;
+
+        static Node leaf(Entry<?>[] entries) {
+            Node node = new Node();
+            node.entries = entries;
+            for (Entry<?> entry : entries) {
+                node.extend(entry);
+            }
+            return node;
+        }
+
+        static Node branch(Node[] children) {
+            Node node = new Node();
+            node.children = children;
+            for (Node child : children) {
+                node.extend(child);
+            }
+            return node;
+        }
+    }
+
+    /**
+     * An indexed geofence:  its circle (for a polygon, the circle the SDK computes to enclose it), optional polygon
+     * vertices as a flat [lat, lng, lat, lng, ...] array, and the item it indexes.
+     */
+    static class Entry<T> extends Box {
+        final T item;
+        final double latitude;
+        final double longitude;
+        final double radius;
+        final double[] vertices;
+        // Polygon edge i runs from vertex i-1 to vertex i:  dLng / dLat, precomputed for #hitTest (0 for a horizontal edge).
+        private final double[] mEdgeSlopes;
+
+        Entry(T item, double latitude, double longitude, double radius, double[] vertices) {
+            this.item = item;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+            this.vertices = (vertices != null && vertices.length >= 6) ? vertices : null;
+            if (this.vertices != null) {
+                int count = vertices.length / 2;
+                mEdgeSlopes = new double[count];
+                for (int i = 0, j = count - 1; i < count; j = i++) {
+                    extend(vertices[i * 2], vertices[i * 2 + 1]);
+                    double dLat = vertices[j * 2] - vertices[i * 2];
+                    mEdgeSlopes[i] = (dLat != 0) ? (vertices[j * 2 + 1] - vertices[i * 2 + 1]) / dLat : 0;
+                }
+            } else {
+                mEdgeSlopes = null;
+                double dLat = radius / METRES_PER_DEGREE;
+                double dLng = dLat / Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+                extend(latitude - dLat, longitude - dLng);
+                extend(latitude + dLat, longitude + dLng);
+            }
+        }
+
+        /**
+         * True if the given point lies inside this geofence:  an even-odd ray-cast over the polygon's edges, or within its circle.
+         */
+        boolean hitTest(double lat, double lng) {
+            if (!contains(lat, lng)) {
+                return false;
+            }
+            if (vertices == null) {
+                return distance(lat, lng, latitude, longitude) <= radius;
+            }
+            boolean inside = false;
+            int count = vertices.length / 2;
+            for (int i = 0, j = count - 1; i < count; j = i++) {
+                double latI = vertices[i * 2];
+                if ((latI > lat) != (vertices[j * 2] > lat) && lng < mEdgeSlopes[i] * (lat - latI) + vertices[i * 2 + 1]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        /**
+         * Metres from the given point to the edge of this geofence (0 if inside):  its circle, or for a polygon
+         * the nearest point of its bounding-box.
+         */
+        double distanceFrom(double lat, double lng) {
+            if (vertices == null) {
+                return Math.max(0, distance(lat, lng, latitude, longitude) - radius);
+            }
+            return distance(lat, lng, Math.max(minLat, Math.min(maxLat, lat)), Math.max(minLng, Math.min(maxLng, lng)));
+        }
+    }
+
+    static class Builder<T> {
+        private final List<Entry<T>> mEntries = new ArrayList<>();
+
+        Builder<T> add(T item, double latitude, double longitude, double radius, double[] vertices) {
+            mEntries.add(new Entry<>(item, latitude, longitude, radius, vertices));
+            return this;
+        }
+
+        GeofenceIndex<T> build() {
+            return new GeofenceIndex<>(mEntries);
+        }
+    }
+}
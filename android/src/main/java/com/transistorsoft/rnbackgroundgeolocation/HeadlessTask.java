@@ -1,5 +1,12 @@
 package com.transistorsoft.rnbackgroundgeolocation;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeMap;
 
@@ -13,9 +20,13 @@ import com.transistorsoft.locationmanager.http.HttpResponse;
 import com.transistorsoft.locationmanager.logger.TSLog;
 
 import org.greenrobot.eventbus.ThreadMode;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The BackgroundGeolocation SDK creates a single instance of this class (via reflection upon Config.headlessJobService)
@@ -27,16 +38,146 @@ import java.util.Map;
 
 public class HeadlessTask {
     private static final String HEADLESS_TASK_NAME = "BackgroundGeolocation";
-    // Hard-coded time-limit for headless-tasks is 60000 @todo configurable?
-    private static final int TASK_TIMEOUT = 60000 * 2;
+    // Default time-limit for headless-tasks (see OPTION_TIMEOUT, OPTION_TIMEOUTS).
+    private static final int DEFAULT_TASK_TIMEOUT = 60000 * 2;
+
+    // Headless options (#configure) are persisted:  they must be known when a terminated app is re-launched by an event,
+    // before any Javascript has run.
+    private static final String PREFS_NAME = "TSHeadlessTask";
+    // Coalesce location / heartbeat events queued while the ReactContext launches into a single "batch" task.
+    private static final String OPTION_BATCH = "batch";
+    // Maximum number of headless-tasks running in JS at once (0:  unlimited).
+    private static final String OPTION_MAX_CONCURRENT_TASKS = "maxConcurrentTasks";
+    // Waiting headless-tasks beyond which low / normal priority tasks are dropped (0:  unlimited).
+    private static final String OPTION_MAX_BACKLOG = "maxBacklog";
+    // Time-limit (ms) for all headless-tasks.
+    private static final String OPTION_TIMEOUT = "timeout";
+    // Time-limit (ms) per event-name, eg: {location: 30000, geofence: 120000}, overriding OPTION_TIMEOUT.
+    private static final String OPTION_TIMEOUTS = "timeouts";
+    // Derive each event-type's time-limit from observed finishHeadlessTask latencies (see HeadlessTaskLatencies).
+    private static final String OPTION_ADAPTIVE_TIMEOUT = "adaptiveTimeout";
+    // Journal queued events to disk, replaying those lost to a killed process (see HeadlessTaskJournal).
+    private static final String OPTION_PERSIST = "persist";
+    // schedule / boot / terminate events carry CompactState rather than the entire config.
+    private static final String OPTION_COMPACT_EVENTS = "compactEvents";
+
+    // Parsed OPTION_TIMEOUTS, cached until the next #configure.
+    private static volatile JSONObject sTimeouts;
+
+    // Headless event payloads are built here, one at a time in order of receipt, rather than on the main thread.
+    // Only the final HeadlessTaskManager#startTask is posted to the main looper.
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Apply headless-task options provided by BackgroundGeolocation.configureHeadlessTask.
+     */
+    static void configure(Context context, ReadableMap options) {
+        SharedPreferences.Editor editor = getPreferences(context).edit();
+        if (options.hasKey(OPTION_BATCH)) {
+            editor.putBoolean(OPTION_BATCH, options.getBoolean(OPTION_BATCH));
+        }
+        if (options.hasKey(OPTION_MAX_CONCURRENT_TASKS)) {
+            editor.putInt(OPTION_MAX_CONCURRENT_TASKS, options.getInt(OPTION_MAX_CONCURRENT_TASKS));
+        }
+        if (options.hasKey(OPTION_MAX_BACKLOG)) {
+            editor.putInt(OPTION_MAX_BACKLOG, options.getInt(OPTION_MAX_BACKLOG));
+        }
+        if (options.hasKey(OPTION_TIMEOUT)) {
+            editor.putInt(OPTION_TIMEOUT, options.getInt(OPTION_TIMEOUT));
+        }
+        if (options.hasKey(OPTION_TIMEOUTS)) {
+            ReadableMap timeouts = options.getMap(OPTION_TIMEOUTS);
+            editor.putString(OPTION_TIMEOUTS, (timeouts != null) ? BridgeConverter.mapToJson(timeouts).toString() : null);
+        }
+        if (options.hasKey(OPTION_ADAPTIVE_TIMEOUT)) {
+            editor.putBoolean(OPTION_ADAPTIVE_TIMEOUT, options.getBoolean(OPTION_ADAPTIVE_TIMEOUT));
+        }
+        if (options.hasKey(OPTION_PERSIST)) {
+            editor.putBoolean(OPTION_PERSIST, options.getBoolean(OPTION_PERSIST));
+        }
+        if (options.hasKey(OPTION_COMPACT_EVENTS)) {
+            editor.putBoolean(OPTION_COMPACT_EVENTS, options.getBoolean(OPTION_COMPACT_EVENTS));
+        }
+        editor.apply();
+        sTimeouts = null;
+        applyOptions(getPreferences(context));
+    }
+
+    private static void applyOptions(SharedPreferences preferences) {
+        HeadlessTaskManager manager = HeadlessTaskManager.getInstance();
+        manager.setMaxConcurrentTasks(preferences.getInt(OPTION_MAX_CONCURRENT_TASKS, 0));
+        manager.setMaxBacklog(preferences.getInt(OPTION_MAX_BACKLOG, 0));
+        manager.restoreLatencies(preferences);
+    }
+
+    /**
+     * True when schedule / boot / terminate events should carry CompactState (OPTION_COMPACT_EVENTS), headless or not.
+     */
+    static boolean isCompactEvents(Context context) {
+        return getPreferences(context).getBoolean(OPTION_COMPACT_EVENTS, false);
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Configured time-limit for the named event:  OPTION_TIMEOUTS[name], else OPTION_TIMEOUT, else DEFAULT_TASK_TIMEOUT.
+     */
+    private static int getTimeout(SharedPreferences preferences, String name) {
+        JSONObject timeouts = sTimeouts;
+        if (timeouts == null) {
+            try {
+                timeouts = new JSONObject(preferences.getString(OPTION_TIMEOUTS, "{}"));
+            } catch (JSONException e) {
+                TSLog.w(TSLog.warn("Invalid headless-task timeouts: " + e.getMessage()));
+                timeouts = new JSONObject();
+            }
+            sTimeouts = timeouts;
+        }
+        int timeout = preferences.getInt(OPTION_TIMEOUT, DEFAULT_TASK_TIMEOUT);
+        return timeouts.optInt(name, timeout);
+    }
+
+    /**
+     * geofence / motionchange (and the lifecycle events) run ahead of the high-volume location / heartbeat / http events,
+     * which are also the first to be dropped under backlog.
+     */
+    private static int getPriority(String name) {
+        if (name.equals(EventName.GEOFENCE) || name.equals(EventName.MOTIONCHANGE) || name.equals(EventName.TERMINATE)
+                || name.equals(EventName.BOOT) || name.equals(EventName.SCHEDULE)) {
+            return HeadlessTaskManager.Task.PRIORITY_HIGH;
+        } else if (name.equals(EventName.LOCATION) || name.equals(EventName.HEARTBEAT) || name.equals(EventName.HTTP)) {
+            return HeadlessTaskManager.Task.PRIORITY_LOW;
+        }
+        return HeadlessTaskManager.Task.PRIORITY_NORMAL;
+    }
 
     /**
      * EventBus receiver for a HeadlessTask HeadlessEvent
      * @param event
      */
-    @Subscribe(threadMode = ThreadMode.MAIN)
+    @Subscribe(threadMode = ThreadMode.POSTING)
     public void onHeadlessEvent(HeadlessEvent event) {
+        final long receivedAt = SystemClock.elapsedRealtime();
+        sExecutor.execute(() -> {
+            try {
+                buildAndStartTask(event, receivedAt);
+            } catch (Exception e) {
+                TSLog.w("Failed to build HeadlessTask " + event.getName() + ".  Task ignored:  " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Build the client event for a HeadlessEvent (on #sExecutor) then hand the Task to HeadlessTaskManager on the main thread.
+     */
+    private void buildAndStartTask(HeadlessEvent event, long receivedAt) {
         TSConfig config = TSConfig.getInstance(event.getContext());
+        SharedPreferences preferences = getPreferences(event.getContext());
+        boolean compact = preferences.getBoolean(OPTION_COMPACT_EVENTS, false);
 
         String name = event.getName();
         TSLog.d("\uD83D\uDC80  event: " + name);
@@ -45,7 +186,11 @@ public class HeadlessTask {
         Map<String, ?> params = null;
         clientEvent.putString("name", name);
 
-        if (name.equals(EventName.TERMINATE)) {
+        if (compact && name.equals(EventName.SCHEDULE)) {
+            clientEvent.putMap("params", CompactState.write(config, event.getScheduleEvent()));
+        } else if (compact && (name.equals(EventName.TERMINATE) || name.equals(EventName.BOOT))) {
+            clientEvent.putMap("params", CompactState.write(config));
+        } else if (name.equals(EventName.TERMINATE)) {
             params = config.toMap(false);
         } else if (name.equals(EventName.LOCATION)) {
             params = event.getLocationEvent().toMap();
@@ -94,26 +239,43 @@ public class HeadlessTask {
             clientEvent.putMap("params", RNBackgroundGeolocationModule.mapToWritableMap(params));
         }
 
-        try {
-            HeadlessTaskManager.getInstance().startTask(event.getContext(), new HeadlessTaskManager.Task.Builder()
-                    .setName(HEADLESS_TASK_NAME)
-                    .setParams(clientEvent)
-                    .setTimeout(TASK_TIMEOUT)
-                    .setOnInvokeCallback((reactContext, task) -> {
-                        //TSLog.d("*** onInvoke: " + task.getId());
-                    })
-                    .setOnFinishCallback(taskId -> {
-                        //TSLog.d("*** onFinish: " + taskId);
-                    })
-                    .setOnErrorCallback((task, e) -> {
-                        TSLog.w("⚠\uFE0F  HeadlessTaskError: " + e.getMessage() + ": " + task.toString());
-                    })
-                    .build()
-            );
-        } catch (Exception e) {
-            TSLog.w("Failed invoke HeadlessTask " + name + ".  Task ignored:  " + e.getMessage());
-            e.printStackTrace();
+        applyOptions(preferences);
+        boolean mergeable = (name.equals(EventName.LOCATION) || name.equals(EventName.HEARTBEAT))
+                && preferences.getBoolean(OPTION_BATCH, false);
+        boolean persistent = preferences.getBoolean(OPTION_PERSIST, false);
+        if (persistent) {
+            HeadlessTaskManager.getInstance().openJournal(event.getContext());
         }
+
+        final HeadlessTaskManager.Task task = new HeadlessTaskManager.Task.Builder()
+                .setName(HEADLESS_TASK_NAME)
+                .setParams(clientEvent)
+                .setEvent(name)
+                .setReceivedAt(receivedAt)
+                .setTimeout(getTimeout(preferences, name))
+                .setAdaptiveTimeout(preferences.getBoolean(OPTION_ADAPTIVE_TIMEOUT, false))
+                .setMergeable(mergeable)
+                .setPriority(getPriority(name))
+                .setPersistent(persistent)
+                .setOnInvokeCallback((reactContext, t) -> {
+                    //TSLog.d("*** onInvoke: " + t.getId());
+                })
+                .setOnFinishCallback(taskId -> {
+                    //TSLog.d("*** onFinish: " + taskId);
+                })
+                .setOnErrorCallback((t, e) -> {
+                    TSLog.w("⚠\uFE0F  HeadlessTaskError: " + e.getMessage() + ": " + t.toString());
+                })
+                .build();
+
+        sMainHandler.post(() -> {
+            try {
+                HeadlessTaskManager.getInstance().startTask(event.getContext(), task);
+            } catch (Exception e) {
+                TSLog.w("Failed invoke HeadlessTask " + name + ".  Task ignored:  " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
     }
 
     /**
@@ -0,0 +1,382 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.transistorsoft.locationmanager.logger.TSLog;
+import com.transistorsoft.rnbackgroundgeolocation.HeadlessTaskManager.Task;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe, append-only journal of the queued headless Tasks of HeadlessTaskManager, so that events queued while the
+ * ReactContext launches survive the process being killed.  Tasks left in the journal by a previous process are
+ * recovered when the journal is opened (#takeRecovered) and replayed by HeadlessTaskManager at its next drain.
+ *
+ * The journal is a fixed-size (#CAPACITY) memory-mapped file.  Writes land in the page-cache as they're made, surviving a
+ * process kill;  MappedByteBuffer#force (fsync, for power-loss) is batched to at most once per #FORCE_INTERVAL ms.
+ *
+ * Record:  [int length][int crc32][byte type][long key][payload]   (length and crc cover type, key and payload)
+ *
+ *   TYPE_ADD:     payload is the Task as UTF-8 JSON (see #encode).
+ *   TYPE_REMOVE:  no payload.  The Task of key has finished (or was dropped).
+ *
+ * A zero length terminates the journal.  Each record's length is written last, after its body and the terminator
+ * following it, so a record torn by a crash reads as the terminator (or fails its crc) and is ignored.
+ *
+ * Once no journaled Task remains, the journal is truncated (rewound to 0).  Otherwise, it is compacted to its live TYPE_ADD
+ * records on #mForceExecutor, off the (main) thread calling #add / #remove:  each #COMPACT_INTERVAL bytes appended, or
+ * when full.  Compaction never rewrites the journal in place:  the live records are written to a second file which then
+ * replaces the journal by an atomic rename (see #compact).  A Task arriving while the journal is full is not journaled.
+ */
+class HeadlessTaskJournal {
+    static final String FILENAME = "TSHeadlessTask.journal";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private static final int CAPACITY = 1024 * 1024;
+    private static final long FORCE_INTERVAL = 1000;
+    private static final int COMPACT_INTERVAL = CAPACITY / 4;
+    private static final int HEADER_SIZE = 8;
+    private static final int BODY_HEADER_SIZE = 9;
+    private static final byte TYPE_ADD = 1;
+    private static final byte TYPE_REMOVE = 2;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String KEY_NAME = "name";
+    private static final String KEY_EVENT = "event";
+    private static final String KEY_PRIORITY = "priority";
+    private static final String KEY_MERGEABLE = "mergeable";
+    private static final String KEY_TIMEOUT = "timeout";
+    private static final String KEY_ADAPTIVE_TIMEOUT = "adaptiveTimeout";
+    private static final String KEY_PARAMS = "params";
+
+    private final File mFile;
+    // Replaced by each #compact.
+    private volatile MappedByteBuffer mBuffer;
+    private final Set<Long> mLive = new HashSet<>();
+    private final Map<Long, JSONObject> mRecovered = new LinkedHashMap<>();
+    private final ScheduledExecutorService mForceExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean mIsForceScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean mIsCompactScheduled = new AtomicBoolean(false);
+    private int mPosition = 0;
+    // mPosition following the last #compact.
+    private int mCompactedPosition = 0;
+    private long mNextKey = 1;
+    // Incremented by each truncation, which invalidates a #compact in progress.
+    private int mGeneration = 0;
+
+    static HeadlessTaskJournal open(File file) throws IOException {
+        return new HeadlessTaskJournal(file, map(file));
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() != CAPACITY) {
+                raf.setLength(CAPACITY);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+        } finally {
+            // The mapping remains valid once the file is closed.
+            raf.close();
+        }
+    }
+
+    private HeadlessTaskJournal(File file, MappedByteBuffer buffer) {
+        mFile = file;
+        mBuffer = buffer;
+        recover();
+    }
+
+    /**
+     * Serialize a Task for #add, or null if its params can't be serialized.  Call off the main thread:  this walks params.
+     */
+    static byte[] encode(Task task, ReadableMap params) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put(KEY_NAME, task.getName());
+            json.put(KEY_EVENT, task.getEvent());
+            json.put(KEY_PRIORITY, task.getPriority());
+            json.put(KEY_MERGEABLE, task.isMergeable());
+            json.put(KEY_TIMEOUT, task.getTimeout());
+            json.put(KEY_ADAPTIVE_TIMEOUT, task.isAdaptiveTimeout());
+            json.put(KEY_PARAMS, (params != null) ? BridgeConverter.mapToJson(params) : JSONObject.NULL);
+            return json.toString().getBytes(UTF8);
+        } catch (Exception e) {
+            TSLog.w(TSLog.warn("Headless task journal failed to encode " + task + ": " + e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Rebuild a Task recovered by #takeRecovered (callbacks are left to the caller).
+     */
+    static Task.Builder decode(JSONObject json) throws JSONException {
+        Task.Builder builder = new Task.Builder()
+                .setName(json.getString(KEY_NAME))
+                .setEvent(json.optString(KEY_EVENT, null))
+                .setPriority(json.optInt(KEY_PRIORITY, Task.PRIORITY_NORMAL))
+                .setMergeable(json.optBoolean(KEY_MERGEABLE, false))
+                .setTimeout(json.getInt(KEY_TIMEOUT))
+                .setAdaptiveTimeout(json.optBoolean(KEY_ADAPTIVE_TIMEOUT, false));
+        JSONObject params = json.optJSONObject(KEY_PARAMS);
+        if (params != null) {
+            builder.setParams(BridgeConverter.jsonToMap(params));
+        }
+        return builder;
+    }
+
+    /**
+     * Journal an encoded Task.
+     * @return its journal key, or 0 if the journal is full.
+     */
+    synchronized long add(byte[] payload) {
+        long key = mNextKey;
+        if (!append(TYPE_ADD, key, payload)) {
+            scheduleCompact();
+            TSLog.w(TSLog.warn("Headless task journal full:  task not journaled"));
+            return 0;
+        }
+        mNextKey++;
+        mLive.add(key);
+        return key;
+    }
+
+    /**
+     * Mark the journaled Task of key finished, truncating the journal once no journaled Task remains.
+     */
+    synchronized void remove(long key) {
+        if (!mLive.remove(key)) {
+            return;
+        }
+        if (mLive.isEmpty()) {
+            mBuffer.putInt(0, 0);
+            mPosition = 0;
+            mCompactedPosition = 0;
+            mGeneration++;
+            scheduleForce();
+        } else if (!append(TYPE_REMOVE, key, null)) {
+            // Full:  compaction drops the TYPE_ADD record of key instead.
+            scheduleCompact();
+        }
+    }
+
+    /**
+     * Tasks journaled by a previous process and never finished, in the order they were journaled:  {key: Task JSON}.
+     * They remain in the journal (under the same keys) until #remove.  Returned once only.
+     */
+    synchronized Map<Long, JSONObject> takeRecovered() {
+        Map<Long, JSONObject> recovered = new LinkedHashMap<>(mRecovered);
+        mRecovered.clear();
+        return recovered;
+    }
+
+    synchronized int size() {
+        return mLive.size();
+    }
+
+    private boolean append(byte type, long key, byte[] payload) {
+        int payloadLength = (payload != null) ? payload.length : 0;
+        ByteBuffer body = ByteBuffer.allocate(BODY_HEADER_SIZE + payloadLength);
+        body.put(type).putLong(key);
+        if (payload != null) {
+            body.put(payload);
+        }
+        int position = put(mBuffer, mPosition, body.array());
+        if (position < 0) {
+            return false;
+        }
+        mPosition = position;
+        scheduleForce();
+        if (mPosition - mCompactedPosition >= COMPACT_INTERVAL) {
+            scheduleCompact();
+        }
+        return true;
+    }
+
+    /**
+     * Write a record at position:  the terminator following it, its body and crc, and finally (committing it) its length.
+     * @return the position following the record, or -1 if there's no room for it (and the terminator).
+     */
+    private static int put(MappedByteBuffer target, int position, byte[] body) {
+        int length = body.length;
+        if (position + HEADER_SIZE + length + 4 > CAPACITY) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, length);
+
+        ByteBuffer buffer = target.duplicate();
+        buffer.putInt(position + HEADER_SIZE + length, 0);
+        buffer.position(position + HEADER_SIZE);
+        buffer.put(body, 0, length);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // Commit.
+        buffer.putInt(position, length);
+        return position + HEADER_SIZE + length;
+    }
+
+    /**
+     * Bodies of the live TYPE_ADD records between positions from and to.
+     */
+    private List<byte[]> readLive(int from, int to) {
+        List<byte[]> records = new ArrayList<>();
+        int position = from;
+        while (position < to) {
+            int length = mBuffer.getInt(position);
+            byte[] body = new byte[length];
+            ByteBuffer buffer = mBuffer.duplicate();
+            buffer.position(position + HEADER_SIZE);
+            buffer.get(body);
+            ByteBuffer header = ByteBuffer.wrap(body);
+            if (header.get() == TYPE_ADD && mLive.contains(header.getLong())) {
+                records.add(body);
+            }
+            position += HEADER_SIZE + length;
+        }
+        return records;
+    }
+
+    /**
+     * Compact the journal to its live TYPE_ADD records.
+     *
+     * The records are written to a second file (#COMPACT_SUFFIX), which then replaces the journal by File#renameTo (atomic):
+     * a crash at any point leaves either the former journal or the compacted one intact, never a partial rewrite.  The bulk
+     * of the copy, and its fsync, is made without the lock;  records appended meanwhile are copied in under it, just before
+     * the switch.
+     */
+    private void compact() {
+        List<byte[]> records;
+        int from;
+        int generation;
+        synchronized (this) {
+            from = mPosition;
+            generation = mGeneration;
+            records = readLive(0, from);
+        }
+        File file = new File(mFile.getPath() + COMPACT_SUFFIX);
+        try {
+            MappedByteBuffer buffer = map(file);
+            buffer.putInt(0, 0);
+            int position = 0;
+            for (byte[] body : records) {
+                position = put(buffer, position, body);
+            }
+            buffer.force();
+            synchronized (this) {
+                if (generation != mGeneration) {
+                    // Truncated meanwhile:  nothing left to compact.
+                    file.delete();
+                    return;
+                }
+                // Tasks journaled meanwhile.
+                for (byte[] body : readLive(from, mPosition)) {
+                    position = (position < 0) ? position : put(buffer, position, body);
+                }
+                // Tasks finished meanwhile.
+                for (byte[] body : records) {
+                    long key = ByteBuffer.wrap(body, 1, 8).getLong();
+                    if (!mLive.contains(key) && position >= 0) {
+                        position = put(buffer, position, ByteBuffer.allocate(BODY_HEADER_SIZE).put(TYPE_REMOVE).putLong(key).array());
+                    }
+                }
+                if (position < 0) {
+                    throw new IOException("no room for the compacted records");
+                }
+                if (!file.renameTo(mFile)) {
+                    throw new IOException("failed to rename " + file);
+                }
+                mBuffer = buffer;
+                mPosition = position;
+                mCompactedPosition = position;
+                scheduleForce();
+            }
+        } catch (IOException e) {
+            TSLog.w(TSLog.warn("Headless task journal failed to compact: " + e.getMessage()));
+            file.delete();
+        }
+    }
+
+    /**
+     * Read the journal up to its terminator (or first torn record), collecting the unfinished TYPE_ADD records.
+     */
+    private void recover() {
+        Map<Long, JSONObject> live = new LinkedHashMap<>();
+        int position = 0;
+        while (position + HEADER_SIZE + BODY_HEADER_SIZE + 4 <= CAPACITY) {
+            int length = mBuffer.getInt(position);
+            if (length < BODY_HEADER_SIZE || position + HEADER_SIZE + length + 4 > CAPACITY) {
+                break;
+            }
+            byte[] body = new byte[length];
+            ByteBuffer buffer = mBuffer.duplicate();
+            buffer.position(position + HEADER_SIZE);
+            buffer.get(body);
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != mBuffer.getInt(position + 4)) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(body);
+            byte type = record.get();
+            long key = record.getLong();
+            mNextKey = Math.max(mNextKey, key + 1);
+            if (type == TYPE_ADD) {
+                try {
+                    live.put(key, new JSONObject(new String(body, BODY_HEADER_SIZE, length - BODY_HEADER_SIZE, UTF8)));
+                } catch (JSONException e) {
+                    TSLog.w(TSLog.warn("Headless task journal: invalid record " + key + ": " + e.getMessage()));
+                }
+            } else if (type == TYPE_REMOVE) {
+                live.remove(key);
+            }
+            position += HEADER_SIZE + length;
+        }
+        mPosition = position;
+        mRecovered.putAll(live);
+        mLive.addAll(live.keySet());
+        if (mLive.isEmpty()) {
+            mBuffer.putInt(0, 0);
+            mPosition = 0;
+        } else {
+            // Drop the finished records (and any torn tail) now, rather than at the first #add.
+            compact();
+        }
+    }
+
+    private void scheduleCompact() {
+        if (mIsCompactScheduled.compareAndSet(false, true)) {
+            mForceExecutor.execute(() -> {
+                mIsCompactScheduled.set(false);
+                compact();
+            });
+        }
+    }
+
+    private void scheduleForce() {
+        if (mIsForceScheduled.compareAndSet(false, true)) {
+            mForceExecutor.schedule(() -> {
+                mIsForceScheduled.set(false);
+                mBuffer.force();
+            }, FORCE_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+}
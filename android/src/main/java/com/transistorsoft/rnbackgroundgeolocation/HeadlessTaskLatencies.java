@@ -0,0 +1,185 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import android.content.SharedPreferences;
+
+import com.transistorsoft.locationmanager.logger.TSLog;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Observed headless-task latencies (invoke -> finishHeadlessTask), per event-type, for adaptive task timeouts.
+ *
+ * Each event-type keeps its most recent #SAMPLE_SIZE latencies.  Once #MIN_SAMPLES have been observed, the adaptive timeout
+ * is the p99 latency plus #MARGIN, never more than the configured timeout:  a task which almost always finishes within 2s
+ * stops holding the JS engine (and its params) for the full configured timeout when it fails to call finishHeadlessTask.
+ *
+ * A task which times out (never calling finishHeadlessTask) is sampled at the timeout it was given (#recordTimeout), so that
+ * slow tasks raise the p99 rather than being excluded from it.
+ *
+ * Samples are persisted to the "TSHeadlessTask" SharedPreferences (see #restore), surviving the process:  a terminated app
+ * re-launched by an event starts from the latencies already observed.  Persisting is debounced onto #mPersistExecutor, off the
+ * (main) thread finishing tasks:  at most once per #PERSIST_DELAY ms, so samples of the last PERSIST_DELAY before the process
+ * is killed may be lost.
+ */
+class HeadlessTaskLatencies {
+    static final String PREFS_KEY = "latencies";
+
+    private static final int SAMPLE_SIZE = 100;
+    private static final int MIN_SAMPLES = 20;
+    private static final double PERCENTILE = 0.99;
+    private static final long MARGIN = 10000;
+    private static final long MIN_TIMEOUT = 15000;
+    private static final long PERSIST_DELAY = 5000;
+
+    private final ConcurrentMap<String, Samples> mSamples = new ConcurrentHashMap<>();
+    // null until #restore.
+    private volatile SharedPreferences mPreferences;
+    private final ScheduledExecutorService mPersistExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean mIsPersistScheduled = new AtomicBoolean(false);
+
+    /**
+     * Load the samples persisted by a previous process, persisting to preferences from now on.  Only the first call has effect.
+     */
+    synchronized void restore(SharedPreferences preferences) {
+        if (mPreferences != null) {
+            return;
+        }
+        try {
+            JSONObject json = new JSONObject(preferences.getString(PREFS_KEY, "{}"));
+            Iterator<String> events = json.keys();
+            while (events.hasNext()) {
+                String event = events.next();
+                JSONArray values = json.optJSONArray(event);
+                if (values == null) {
+                    continue;
+                }
+                Samples samples = getSamples(event);
+                for (int i = 0; i < values.length(); i++) {
+                    samples.add(values.optLong(i));
+                }
+            }
+        } catch (Exception e) {
+            TSLog.w(TSLog.warn("Invalid headless-task latencies: " + e.getMessage()));
+        }
+        mPreferences = preferences;
+    }
+
+    void record(String event, long latency) {
+        getSamples(event).add(latency);
+        schedulePersist();
+    }
+
+    /**
+     * A task of event failed to call finishHeadlessTask within the timeout it was given.
+     */
+    void recordTimeout(String event, int timeout) {
+        record(event, timeout);
+    }
+
+    /**
+     * The adaptive timeout for event, capped at maxTimeout (which is returned until enough samples are observed).
+     */
+    int getTimeout(String event, int maxTimeout) {
+        Samples samples = (event != null) ? mSamples.get(event) : null;
+        if (samples == null) {
+            return maxTimeout;
+        }
+        long p99 = samples.percentile(PERCENTILE);
+        if (p99 < 0) {
+            return maxTimeout;
+        }
+        long timeout = Math.max(MIN_TIMEOUT, p99 + MARGIN);
+        return (int) Math.min(maxTimeout, timeout);
+    }
+
+    private Samples getSamples(String event) {
+        Samples samples = mSamples.get(event);
+        if (samples == null) {
+            samples = new Samples();
+            Samples existing = mSamples.putIfAbsent(event, samples);
+            if (existing != null) {
+                samples = existing;
+            }
+        }
+        return samples;
+    }
+
+    private void schedulePersist() {
+        if (mPreferences != null && mIsPersistScheduled.compareAndSet(false, true)) {
+            mPersistExecutor.schedule(() -> {
+                mIsPersistScheduled.set(false);
+                persist();
+            }, PERSIST_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void persist() {
+        SharedPreferences preferences = mPreferences;
+        if (preferences == null) {
+            return;
+        }
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, Samples> entry : mSamples.entrySet()) {
+                json.put(entry.getKey(), entry.getValue().toJson());
+            }
+        } catch (Exception e) {
+            TSLog.w(TSLog.warn("Failed to persist headless-task latencies: " + e.getMessage()));
+            return;
+        }
+        preferences.edit().putString(PREFS_KEY, json.toString()).apply();
+    }
+
+    /**
+     * Ring-buffer of the most recent SAMPLE_SIZE latencies.
+     */
+    private static class Samples {
+        private final long[] mValues = new long[SAMPLE_SIZE];
+        private int mCount = 0;
+        private int mNext = 0;
+
+        synchronized void add(long value) {
+            mValues[mNext] = value;
+            mNext = (mNext + 1) % SAMPLE_SIZE;
+            if (mCount < SAMPLE_SIZE) {
+                mCount++;
+            }
+        }
+
+        /**
+         * @return the given percentile (0..1), or -1 when fewer than MIN_SAMPLES.
+         */
+        synchronized long percentile(double percentile) {
+            if (mCount < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(mValues, mCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * mCount) - 1;
+            return sorted[Math.max(0, Math.min(mCount - 1, index))];
+        }
+
+        /**
+         * The samples, oldest first.
+         */
+        synchronized JSONArray toJson() {
+            JSONArray json = new JSONArray();
+            int first = (mCount < SAMPLE_SIZE) ? 0 : mNext;
+            for (int i = 0; i < mCount; i++) {
+                json.put(mValues[(first + i) % SAMPLE_SIZE]);
+            }
+            return json;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.transistorsoft.rnbackgroundgeolocation;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -14,16 +16,24 @@ import com.facebook.react.ReactInstanceManager;
 import com.facebook.react.ReactNativeHost;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.jstasks.HeadlessJsTaskConfig;
 import com.facebook.react.jstasks.HeadlessJsTaskContext;
 import com.facebook.react.jstasks.HeadlessJsTaskEventListener;
 import com.transistorsoft.locationmanager.logger.TSLog;
 
+import org.json.JSONObject;
+
+import java.io.File;
 import java.lang.reflect.Method;
 
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -37,10 +47,26 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Without providing a timeout for your headless-tasks, those collections in HeadlessJsContext will continue grow and never be cleared.
  *
  * Because there's only one instance of this class, we have to be mindful that we can possibly receive events rapidly,
- * so we store them in a Queue (#mTaskQueue).
+ * so we store them in a Queue (#mTaskRegistry:  indexed by our taskId and by RN's, bounded to HeadlessTaskRegistry.DEFAULT_CAPACITY tasks).
  *
  * We also have to be mindful that it's a heavy operation to do the initial launch the ReactNative Host, so several events
  * might build up in the queue before the Host is finally launched, when we drain the queue (see #drainTaskQueue).
+ * The drain begins as soon as the ReactContext reports an active JS instance, and starts at most #DRAIN_SLICE_SIZE Tasks
+ * per main-looper turn, yielding between slices so a long queue never stalls the main thread.
+ * Consecutive queued Tasks built with Task.Builder#setMergeable are coalesced into a single "batch" Task (see Task#merge),
+ * so a burst of events launches one JS task rather than dozens.
+ *
+ * Queued Tasks are started in order of Task priority (see Task.Builder#setPriority), no more than #setMaxConcurrentTasks at once.
+ * When more than #setMaxBacklog Tasks are waiting, the oldest of the lowest priority are dropped (PRIORITY_HIGH Tasks are never dropped).
+ *
+ * Tasks built with Task.Builder#setPersistent are journaled to disk while queued (see HeadlessTaskJournal, #openJournal):
+ * those lost to a killed process are replayed at the next #drainTaskQueue.
+ *
+ * The latency of each Task (invoke -> #finishTask) is recorded per Task event-type.  Tasks built with Task.Builder#setAdaptiveTimeout
+ * are given a timeout derived from those latencies (see HeadlessTaskLatencies) rather than their configured timeout.
+ *
+ * Each stage of the pipeline (event received -> queued -> invoked -> finished), the ReactContext launch-time and the queue-depth
+ * are instrumented for #getMetrics (see HeadlessTaskMetrics).
  *
  * For finally sending events to the client, we wrap the RN HeadlessJsTaskConfig with our own TaskConfig class.  This class
  * adds our own auto-incremented "taskId" field to maintain a mapping between our taskId and RN's.  See #invokeStartTask.
@@ -83,11 +109,106 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
         return sInstance;
     }
 
-    private final Set<Task> mTaskQueue = new CopyOnWriteArraySet<>();
+    // ReactHost API (new architecture), reached by reflection.
+    private static final CachedMethod GET_REACT_HOST = new CachedMethod("getReactHost");
+    private static final CachedMethod GET_CURRENT_REACT_CONTEXT = new CachedMethod("getCurrentReactContext");
+    private static final CachedMethod ADD_REACT_INSTANCE_EVENT_LISTENER = new CachedMethod("addReactInstanceEventListener", ReactInstanceEventListener.class);
+    private static final CachedMethod REMOVE_REACT_INSTANCE_EVENT_LISTENER = new CachedMethod("removeReactInstanceEventListener", ReactInstanceEventListener.class);
+    private static final CachedMethod START_REACT_HOST = new CachedMethod("start");
+
+    // Maximum Tasks started per main-looper turn (see #invokePendingTasks).
+    private static final int DRAIN_SLICE_SIZE = 10;
+    // Safety-net for #drainTaskQueue:  drain anyway should a ReactContext still initializing never signal its initialization.
+    private static final long READINESS_TIMEOUT = 5000;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile Boolean mIsBridgelessEnabled;
+    private final HeadlessTaskRegistry mTaskRegistry = new HeadlessTaskRegistry(HeadlessTaskRegistry.DEFAULT_CAPACITY);
     private final AtomicBoolean mIsReactContextInitialized = new AtomicBoolean(false);
     private final AtomicBoolean mWillDrainTaskQueue = new AtomicBoolean(false);
     private final AtomicBoolean mIsInitializingReactContext = new AtomicBoolean(false);
     private final AtomicBoolean mIsHeadlessJsTaskListenerRegistered = new AtomicBoolean(false);
+    private final HeadlessTaskLatencies mLatencies = new HeadlessTaskLatencies();
+    private final HeadlessTaskMetrics mMetrics = new HeadlessTaskMetrics();
+    // SystemClock#elapsedRealtime when we began launching the ReactContext.
+    private long mReactContextLaunchedAt = 0;
+    private final AtomicBoolean mHasDrainedTaskQueue = new AtomicBoolean(false);
+    // A follow-up slice of #invokePendingTasks is posted to the main looper.
+    private final AtomicBoolean mIsDrainSlicePosted = new AtomicBoolean(false);
+    // Most recently queued pending Task, candidate for Task#merge (main-thread only).
+    private Task mLastPendingTask;
+    // null until #openJournal (or if the journal failed to open).
+    private volatile HeadlessTaskJournal mJournal;
+    private boolean mIsJournalOpened = false;
+    private Context mContext;
+
+    // 0:  unlimited.
+    private volatile int mMaxConcurrentTasks = 0;
+    private volatile int mMaxBacklog = 0;
+
+    /**
+     * Maximum number of Tasks running in JS at once.  Further Tasks wait in the queue.  0 (default) is unlimited.
+     */
+    public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        mMaxConcurrentTasks = Math.max(0, maxConcurrentTasks);
+    }
+
+    /**
+     * Maximum number of waiting Tasks before lower-priority Tasks are dropped.  0 (default) is unlimited.
+     */
+    public void setMaxBacklog(int maxBacklog) {
+        mMaxBacklog = Math.max(0, maxBacklog);
+    }
+
+    // Tasks currently running in JS.
+    public int getRunningTaskCount() {
+        return mTaskRegistry.getRunningCount();
+    }
+
+    // Tasks waiting to be started.
+    public int getPendingTaskCount() {
+        return mTaskRegistry.getPendingCount();
+    }
+
+    // Tasks dropped from the queue (see #setMaxBacklog).
+    public int getDroppedTaskCount() {
+        return mTaskRegistry.getDroppedCount();
+    }
+
+    /**
+     * Open the on-disk journal of persistent Tasks (see Task.Builder#setPersistent), recovering those journaled by a previous
+     * process for replay at the next #drainTaskQueue.  Reads the journal file:  call off the main thread when possible.
+     */
+    public synchronized void openJournal(Context context) {
+        if (mIsJournalOpened) {
+            return;
+        }
+        mIsJournalOpened = true;
+        try {
+            File file = new File(context.getApplicationContext().getFilesDir(), HeadlessTaskJournal.FILENAME);
+            mJournal = HeadlessTaskJournal.open(file);
+        } catch (Exception e) {
+            TSLog.e(TSLog.error("Failed to open headless task journal: " + e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Restore the latencies observed by previous processes from preferences, for adaptive timeouts (see HeadlessTaskLatencies).
+     */
+    void restoreLatencies(SharedPreferences preferences) {
+        mLatencies.restore(preferences);
+    }
+
+    /**
+     * Pipeline metrics (see HeadlessTaskMetrics#toMap) along with the current running / pending / dropped counts.
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = mMetrics.toMap();
+        metrics.put("running", getRunningTaskCount());
+        metrics.put("pending", getPendingTaskCount());
+        metrics.put("dropped", getDroppedTaskCount());
+        return metrics;
+    }
 
     /**
      * Start a task. This method handles starting a new React instance if required.
@@ -99,15 +220,24 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
      */
     public void startTask(Context context, Task task) throws AssertionError {
         UiThreadUtil.assertOnUiThread();
-
-        addTask(task);
+        mContext = context.getApplicationContext();
+        task.onQueued();
+        mMetrics.onTaskStarted(task);
+        journalTask(context, task);
 
         if (!mIsReactContextInitialized.get()) {
+            if (mLastPendingTask == null || findTask(mLastPendingTask.getId()) == null || !mLastPendingTask.merge(task)) {
+                if (addTask(task, true)) {
+                    mLastPendingTask = task;
+                }
+            }
+            mMetrics.onQueueDepth(getPendingTaskCount());
             createReactContextAndScheduleTask(context);
         } else {
-            boolean success = invokeStartTask(getReactContext(context), task);
-            if (!success) {
-                removeTask(task);
+            addTask(task, true);
+            mMetrics.onQueueDepth(getPendingTaskCount());
+            if (mHasDrainedTaskQueue.get()) {
+                invokePendingTasks(getReactContext(context));
             }
         }
     }
@@ -120,6 +250,10 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
         if (reactContext != null) {
             Task task = findTask(taskId);
             if (task != null) {
+                if (task.getInvokedAt() > 0 && task.getEvent() != null) {
+                    mLatencies.record(task.getEvent(), SystemClock.elapsedRealtime() - task.getInvokedAt());
+                }
+                task.onFinishRequested();
                 HeadlessJsTaskContext headlessJsTaskContext = HeadlessJsTaskContext.getInstance(reactContext);
                 if (headlessJsTaskContext.isTaskRunning(task.getReactTaskId())) {
                     headlessJsTaskContext.finishTask(task.getReactTaskId());
@@ -140,7 +274,13 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
             headlessJsTaskContext.addTaskEventListener(this);
         }
         try {
-            return task.invoke(reactContext);
+            int timeout = task.isAdaptiveTimeout() ? mLatencies.getTimeout(task.getEvent(), task.getTimeout()) : task.getTimeout();
+            boolean success = task.invoke(reactContext, timeout);
+            if (success) {
+                mTaskRegistry.onInvoked(task);
+                mMetrics.onTaskInvoked(task);
+            }
+            return success;
         } catch (Exception e) {
             task.onError(e);
             return false;
@@ -159,9 +299,19 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
             return;
         }
         removeTask(task);
+        if (!task.isFinishRequested() && task.getEvent() != null) {
+            // Timed out:  sample the timeout, lest the adaptive timeout ratchet down below the latency of slow tasks.
+            mLatencies.recordTimeout(task.getEvent(), task.getInvokedTimeout());
+        }
+        mMetrics.onTaskFinished(task, SystemClock.elapsedRealtime());
         task.onFinish();
 
         TSLog.d("[onHeadlessJsTaskFinish] taskId: " + taskId);
+
+        // A slot is free:  start the next waiting Task.
+        if (mTaskRegistry.getPendingCount() > 0 && mContext != null) {
+            UiThreadUtil.runOnUiThread(() -> invokePendingTasks(getReactContext(mContext)));
+        }
     }
 
     private ReactNativeHost getReactNativeHost(Context context) {
@@ -174,8 +324,7 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
     private @Nullable Object getReactHost(Context context) {
         context = context.getApplicationContext();
         try {
-            Method getReactHost = context.getClass().getMethod("getReactHost");
-            return getReactHost.invoke(context);
+            return GET_REACT_HOST.invoke(context);
         } catch (Exception e) {
             return null;
         }
@@ -186,8 +335,7 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
             Object reactHost = getReactHost(context);
             Assertions.assertNotNull(reactHost, "getReactHost() is null in New Architecture");
             try {
-                Method getCurrentReactContext = reactHost.getClass().getMethod("getCurrentReactContext");
-                return (ReactContext) getCurrentReactContext.invoke(reactHost);
+                return (ReactContext) GET_CURRENT_REACT_CONTEXT.invoke(reactHost);
             } catch (Exception e) {
                 TSLog.e(TSLog.error( "Reflection error getCurrentReactContext: " + e.getMessage()), e);
             }
@@ -207,134 +355,289 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
         }
         if (mIsInitializingReactContext.compareAndSet(false, true)) {
             TSLog.d( "[createReactContextAndScheduleTask] initialize ReactContext");
-            final Object reactHost = getReactHost(context);
+            mReactContextLaunchedAt = SystemClock.elapsedRealtime();
+            final Context appContext = context.getApplicationContext();
+            addReactInstanceEventListener(appContext, new ReactInstanceEventListener() {
+                @Override
+                public void onReactContextInitialized(@NonNull ReactContext reactContext) {
+                    onReactContextInitialized(reactContext);
+                    removeReactInstanceEventListener(appContext, this);
+                }
+            });
             if (isBridglessArchitectureEnabled()) { // NEW arch
-                ReactInstanceEventListener callback = new ReactInstanceEventListener() {
-                    @Override
-                    public void onReactContextInitialized(@NonNull ReactContext reactContext) {
-                        mIsReactContextInitialized.set(true);
-                        drainTaskQueue(reactContext);
-                        try {
-                            Method removeReactInstanceEventListener = reactHost.getClass().getMethod("removeReactInstanceEventListener", ReactInstanceEventListener.class);
-                            removeReactInstanceEventListener.invoke(reactHost, this);
-                        } catch (Exception e) {
-                            TSLog.e(TSLog.error("HeadlessTask reflection error removeReactInstanceEventListener: ") + e);
-                        }
-                    }
-                };
                 try {
-                    Method addReactInstanceEventListener = reactHost.getClass().getMethod("addReactInstanceEventListener", ReactInstanceEventListener.class);
-                    addReactInstanceEventListener.invoke(reactHost, callback);
-                    Method startReactHost = reactHost.getClass().getMethod("start");
-                    startReactHost.invoke(reactHost);
+                    START_REACT_HOST.invoke(getReactHost(appContext));
                 } catch (Exception e) {
                     TSLog.e(TSLog.error("HeadlessTask reflection error ReactHost start: " + e.getMessage()), e);
                 }
             } else { // OLD arch
-                final ReactInstanceManager reactInstanceManager = getReactNativeHost(context).getReactInstanceManager();
-                reactInstanceManager.addReactInstanceEventListener(new ReactInstanceEventListener() {
-                    @Override
-                    public void onReactContextInitialized(@NonNull ReactContext reactContext) {
-                        mIsReactContextInitialized.set(true);
-                        drainTaskQueue(reactContext);
-                        reactInstanceManager.removeReactInstanceEventListener(this);
-                    }
-                });
-                reactInstanceManager.createReactContextInBackground();
+                getReactNativeHost(appContext).getReactInstanceManager().createReactContextInBackground();
             }
         }
     }
 
+    // Listen to the ReactHost (NEW arch) or ReactInstanceManager (OLD arch) for the ReactContext's initialization.
+    private void addReactInstanceEventListener(Context context, ReactInstanceEventListener listener) {
+        if (isBridglessArchitectureEnabled()) {
+            try {
+                ADD_REACT_INSTANCE_EVENT_LISTENER.invoke(getReactHost(context), listener);
+            } catch (Exception e) {
+                TSLog.e(TSLog.error("HeadlessTask reflection error addReactInstanceEventListener: " + e.getMessage()), e);
+            }
+        } else {
+            getReactNativeHost(context).getReactInstanceManager().addReactInstanceEventListener(listener);
+        }
+    }
+
+    private void removeReactInstanceEventListener(Context context, ReactInstanceEventListener listener) {
+        if (isBridglessArchitectureEnabled()) {
+            try {
+                REMOVE_REACT_INSTANCE_EVENT_LISTENER.invoke(getReactHost(context), listener);
+            } catch (Exception e) {
+                TSLog.e(TSLog.error("HeadlessTask reflection error removeReactInstanceEventListener: ") + e);
+            }
+        } else {
+            getReactNativeHost(context).getReactInstanceManager().removeReactInstanceEventListener(listener);
+        }
+    }
+
+    private void onReactContextInitialized(ReactContext reactContext) {
+        mMetrics.onReactContextLaunched(SystemClock.elapsedRealtime() - mReactContextLaunchedAt);
+        mIsReactContextInitialized.set(true);
+        drainTaskQueue(reactContext);
+    }
+
     /**
      * Return true if this app is running with RN's bridgeless architecture.
      * Cheers to @mikehardy for this idea.
      * @return
      */
     private boolean isBridglessArchitectureEnabled() {
-        try {
-            Class<?> entryPoint = Class.forName("com.facebook.react.defaults.DefaultNewArchitectureEntryPoint");
-            Method bridgelessEnabled = entryPoint.getMethod("getBridgelessEnabled");
-            Object result = bridgelessEnabled.invoke(null);
-            return (result == Boolean.TRUE);
-        } catch (Exception e) {
-            return false;
+        // Fixed for the life of the process:  resolve just once.
+        Boolean enabled = mIsBridgelessEnabled;
+        if (enabled == null) {
+            try {
+                Class<?> entryPoint = Class.forName("com.facebook.react.defaults.DefaultNewArchitectureEntryPoint");
+                Method bridgelessEnabled = entryPoint.getMethod("getBridgelessEnabled");
+                Object result = bridgelessEnabled.invoke(null);
+                enabled = (result == Boolean.TRUE);
+            } catch (Exception e) {
+                enabled = false;
+            }
+            mIsBridgelessEnabled = enabled;
         }
+        return enabled;
     }
 
     /**
-     * Invokes HeadlessEvents queued while waiting for the ReactContext to initialize.
+     * Invokes HeadlessEvents queued while waiting for the ReactContext to initialize, on the next main-looper turn once
+     * the ReactContext has an active JS instance.  A ReactContext still initializing (eg: launched by another plugin) is
+     * drained when its ReactInstanceEventListener fires, or after READINESS_TIMEOUT should it never fire.
      * @param reactContext
      */
     private void drainTaskQueue(final ReactContext reactContext) {
-        if (mWillDrainTaskQueue.compareAndSet(false, true)) {
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                synchronized(mTaskQueue) {
-                    mTaskQueue.forEach((Task task) -> {
-                        boolean success = invokeStartTask(reactContext, task);
-                        if (!success) {
-                            removeTask(task);
-                        }
+        if (!mWillDrainTaskQueue.compareAndSet(false, true)) {
+            return;
+        }
+        final AtomicBoolean drained = new AtomicBoolean(false);
+        final Runnable drain = () -> {
+            if (drained.compareAndSet(false, true)) {
+                mLastPendingTask = null;
+                mHasDrainedTaskQueue.set(true);
+                replayJournal();
+                invokePendingTasks(reactContext);
+            }
+        };
+        if (reactContext.hasActiveReactInstance() || mContext == null) {
+            mMainHandler.post(drain);
+            return;
+        }
+        final Context context = mContext;
+        final Runnable timeout = () -> {
+            if (!drained.get()) {
+                TSLog.w(TSLog.warn("ReactContext initialization not signalled within " + READINESS_TIMEOUT + "ms:  draining headless tasks anyway"));
+                drain.run();
+            }
+        };
+        addReactInstanceEventListener(context, new ReactInstanceEventListener() {
+            @Override
+            public void onReactContextInitialized(@NonNull ReactContext initializedContext) {
+                removeReactInstanceEventListener(context, this);
+                mMainHandler.removeCallbacks(timeout);
+                mMainHandler.post(drain);
+            }
+        });
+        mMainHandler.postDelayed(timeout, READINESS_TIMEOUT);
+        // It may have become active while the listener was added.
+        if (reactContext.hasActiveReactInstance()) {
+            mMainHandler.removeCallbacks(timeout);
+            mMainHandler.post(drain);
+        }
+    }
+
+    /**
+     * Start waiting Tasks, highest-priority first, while under #mMaxConcurrentTasks.
+     * At most DRAIN_SLICE_SIZE Tasks are started per call:  the remainder are left to a follow-up slice posted to the main looper.
+     */
+    private void invokePendingTasks(final ReactContext reactContext) {
+        if (reactContext == null) {
+            return;
+        }
+        int started = 0;
+        while (mMaxConcurrentTasks <= 0 || mTaskRegistry.getRunningCount() < mMaxConcurrentTasks) {
+            if (started >= DRAIN_SLICE_SIZE) {
+                // Yield the main thread before the next slice.
+                if (mTaskRegistry.getPendingCount() > 0 && mIsDrainSlicePosted.compareAndSet(false, true)) {
+                    mMainHandler.post(() -> {
+                        mIsDrainSlicePosted.set(false);
+                        invokePendingTasks(reactContext);
                     });
                 }
-            }, 250);
+                break;
+            }
+            Task task = mTaskRegistry.poll();
+            if (task == null) {
+                break;
+            }
+            started++;
+            boolean success = invokeStartTask(reactContext, task);
+            if (!success) {
+                removeTask(task);
+            }
         }
     }
 
     // Find a task in the queue.
     public Task findTask(int taskId) {
-        Task found = null;
-        // Locate the TaskConfig instance by our local taskId.
-        synchronized (mTaskQueue) {
-            for (Task task : mTaskQueue) {
-                if (task.getId() == taskId) {
-                    found = task;
-                    break;
-                }
-            }
-        }
-        return found;
+        return mTaskRegistry.get(taskId);
     }
 
     private Task findTaskByReactId(int reactTaskId) {
-        Task found = null;
-        // Locate the TaskConfig instance by our local taskId.
-        synchronized (mTaskQueue) {
-            for (Task config : mTaskQueue) {
-                if (config.getReactTaskId() == reactTaskId) {
-                    found = config;
-                    break;
-                }
-            }
-        }
-        return found;
+        return mTaskRegistry.getByReactId(reactTaskId);
     }
+
     // Add a task to queue.
-    private void addTask(Task config) {
+    private boolean addTask(Task task, boolean pending) {
+        return addTask(task, pending, false);
+    }
+
+    // Add a task to queue, at the head of its priority lane when first.  Returns false when the task was dropped instead.
+    private boolean addTask(Task task, boolean pending, boolean first) {
         // push this HeadlessEvent onto the taskQueue, to be drained once the React context is finished initializing,
         // or executed immediately if Context exists currently.
-        synchronized (mTaskQueue) {
-            mTaskQueue.add(config);
+        if (mTaskRegistry.isFull()) {
+            Task evicted = mTaskRegistry.evict();
+            if (evicted != null) {
+                onTaskDropped(evicted);
+            }
+        }
+        boolean added = first ? mTaskRegistry.addFirst(task) : mTaskRegistry.add(task, pending);
+        if (!added) {
+            // Every registered task is running:  nothing to evict.
+            TSLog.w(TSLog.warn("Headless task registry full (" + mTaskRegistry.getRunningCount() + " running tasks)"));
+            onTaskDropped(task);
+            return false;
+        }
+        // Shed lower-priority Tasks beyond the backlog threshold.
+        int maxBacklog = mMaxBacklog;
+        while (maxBacklog > 0 && mTaskRegistry.getPendingCount() > maxBacklog) {
+            Task dropped = mTaskRegistry.shed(Task.PRIORITY_NORMAL);
+            if (dropped == null) {
+                break;
+            }
+            onTaskDropped(dropped);
         }
+        return true;
+    }
+
+    private void onTaskDropped(Task task) {
+        unjournalTask(task);
+        mMetrics.onTaskDropped(task);
+        TSLog.w(TSLog.warn("Headless task queue full:  dropped " + task));
+        task.onError(new CapacityError(task));
     }
 
     // Remove TaskConfig from queue.
     private void removeTask(Task task) {
-        synchronized (mTaskQueue) {
-            mTaskQueue.remove(task);
+        mTaskRegistry.remove(task);
+        unjournalTask(task);
+    }
+
+    private void journalTask(Context context, Task task) {
+        byte[] payload = task.getJournalPayload();
+        if (payload == null) {
+            return;
+        }
+        openJournal(context);
+        HeadlessTaskJournal journal = mJournal;
+        if (journal != null) {
+            task.setJournalKey(journal.add(payload));
         }
     }
 
-    // Any tasks in the queue?
-    private boolean hasTasks() {
-        synchronized (mTaskQueue) {
-            return !mTaskQueue.isEmpty();
+    // Mark a Task (and those merged into it) finished in the journal.
+    private void unjournalTask(Task task) {
+        HeadlessTaskJournal journal = mJournal;
+        if (journal == null) {
+            return;
+        }
+        if (task.getJournalKey() > 0) {
+            journal.remove(task.getJournalKey());
+        }
+        for (Task merged : task.getMerged()) {
+            if (merged.getJournalKey() > 0) {
+                journal.remove(merged.getJournalKey());
+            }
         }
     }
 
+    /**
+     * Queue the Tasks recovered from a previous process's journal.  They keep their journal records until they finish.
+     */
+    private void replayJournal() {
+        HeadlessTaskJournal journal = mJournal;
+        if (journal == null) {
+            return;
+        }
+        Map<Long, JSONObject> recovered = journal.takeRecovered();
+        if (recovered.isEmpty()) {
+            return;
+        }
+        TSLog.d("[HeadlessTaskManager] replaying " + recovered.size() + " journaled task(s)");
+        List<Task> tasks = new ArrayList<>(recovered.size());
+        for (Map.Entry<Long, JSONObject> entry : recovered.entrySet()) {
+            try {
+                Task task = HeadlessTaskJournal.decode(entry.getValue())
+                        .setOnErrorCallback((t, e) -> TSLog.w("⚠\uFE0F  HeadlessTaskError: " + e.getMessage() + ": " + t))
+                        .build();
+                task.setJournalKey(entry.getKey());
+                task.onQueued();
+                tasks.add(task);
+            } catch (Exception e) {
+                TSLog.w(TSLog.warn("Failed to replay journaled headless task: " + e.getMessage()));
+                journal.remove(entry.getKey());
+            }
+        }
+        // Recovered tasks were queued before any of this process:  queue them at the head of their lanes, in journal order.
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            addTask(tasks.get(i), true, true);
+        }
+        mMetrics.onQueueDepth(getPendingTaskCount());
+    }
+
     /**
      * Wrapper for a client event.  Inserts our custom taskId into the RN ClientEvent params.
      */
     public static class Task {
+        // Event-name of a Task carrying merged events:  {name: "batch", params: [event, event, ...]}
+        public static final String BATCH_EVENT_NAME = "batch";
+        private static final int MAX_BATCH_SIZE = 100;
+
+        // Priority lanes, most important first.
+        public static final int PRIORITY_HIGH = 0;
+        public static final int PRIORITY_NORMAL = 1;
+        public static final int PRIORITY_LOW = 2;
+
         private static final AtomicInteger sLastTaskId = new AtomicInteger(0);
         synchronized static int getNextTaskId() {
             return sLastTaskId.incrementAndGet();
@@ -342,12 +645,26 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
 
         private final int mId;
         private final String mTaskName;
-        private int mReactTaskId;
+        private volatile int mReactTaskId;
         private final OnInvokeCallback mOnInvokeCallback;
         private final OnFinishCallback mOnFinishCallback;
         private final OnErrorCallback mOnErrorCallback;
         private final int mTimeout;
         private final WritableMap mParams;
+        private final boolean mMergeable;
+        private final int mPriority;
+        private final String mEvent;
+        private final boolean mAdaptiveTimeout;
+        private final long mReceivedAt;
+        private volatile long mQueuedAt;
+        private volatile long mInvokedAt;
+        private volatile int mInvokedTimeout;
+        private volatile boolean mFinishRequested;
+        // Tasks merged into this one (see #merge).
+        private List<Task> mMerged;
+        // Encoded for HeadlessTaskJournal (null unless Builder#setPersistent), and its journal key once journaled.
+        private final byte[] mJournalPayload;
+        private volatile long mJournalKey;
 
         Task(Builder builder) {
             mTaskName = builder.name;
@@ -357,11 +674,33 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
             mOnErrorCallback = builder.onErrorCallback;
             mTimeout = builder.timeout;
             mParams = builder.params;
-            // append our custom headless taskId.
-            mParams.putInt("_transistorHeadlessTaskId", mId);
+            mMergeable = builder.mergeable;
+            mPriority = builder.priority;
+            mEvent = builder.event;
+            mAdaptiveTimeout = builder.adaptiveTimeout;
+            mReceivedAt = builder.receivedAt;
+            mJournalPayload = builder.persistent ? HeadlessTaskJournal.encode(this, mParams) : null;
         }
 
-        boolean invoke(ReactContext reactContext) throws IllegalStateException {
+        /**
+         * Absorb a following mergeable Task into this one, both still pending.  The merged Task is never invoked itself:
+         * its params are delivered in this Task's batch and its OnFinishCallback fires along with this Task's.
+         * @return false if either Task isn't mergeable, this Task has already been invoked or is full.
+         */
+        boolean merge(Task task) {
+            if (!mMergeable || !task.mMergeable || mReactTaskId > 0 || mPriority != task.mPriority || !mTaskName.equals(task.mTaskName)) {
+                return false;
+            }
+            if (mMerged == null) {
+                mMerged = new ArrayList<>();
+            } else if (mMerged.size() + 1 >= MAX_BATCH_SIZE) {
+                return false;
+            }
+            mMerged.add(task);
+            return true;
+        }
+
+        boolean invoke(ReactContext reactContext, int timeout) throws IllegalStateException {
             if (mReactTaskId > 0) {
                 TSLog.w(TSLog.warn("Task already invoked <IGNORED>: " + this));
                 return true;
@@ -369,7 +708,9 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
             HeadlessJsTaskContext headlessJsTaskContext = HeadlessJsTaskContext.getInstance(reactContext);
             // Provide the RN taskId to our private TaskConfig instance, mapping the RN taskId to our TaskConfig's internal taskId.
 
-            mReactTaskId = headlessJsTaskContext.startTask(buildTaskConfig());
+            mInvokedAt = SystemClock.elapsedRealtime();
+            mInvokedTimeout = timeout;
+            mReactTaskId = headlessJsTaskContext.startTask(buildTaskConfig(timeout));
             if (mOnInvokeCallback != null) {
                 mOnInvokeCallback.onInvoke(reactContext, this);
             }
@@ -380,18 +721,109 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
             return mId;
         }
 
-        private int getReactTaskId() {
+        public int getPriority() {
+            return mPriority;
+        }
+
+        public String getEvent() {
+            return mEvent;
+        }
+
+        String getName() {
+            return mTaskName;
+        }
+
+        boolean isMergeable() {
+            return mMergeable;
+        }
+
+        byte[] getJournalPayload() {
+            return mJournalPayload;
+        }
+
+        long getJournalKey() {
+            return mJournalKey;
+        }
+
+        void setJournalKey(long key) {
+            mJournalKey = key;
+        }
+
+        int getTimeout() {
+            return mTimeout;
+        }
+
+        boolean isAdaptiveTimeout() {
+            return mAdaptiveTimeout;
+        }
+
+        // The timeout handed to RN (0 until invoked).
+        int getInvokedTimeout() {
+            return mInvokedTimeout;
+        }
+
+        // JS called finishHeadlessTask (rather than RN timing-out the task).
+        boolean isFinishRequested() {
+            return mFinishRequested;
+        }
+
+        void onFinishRequested() {
+            mFinishRequested = true;
+        }
+
+        // SystemClock#elapsedRealtime when handed to RN (0 until invoked).
+        long getInvokedAt() {
+            return mInvokedAt;
+        }
+
+        // SystemClock#elapsedRealtime when the source event was received (0 if unknown).
+        long getReceivedAt() {
+            return mReceivedAt;
+        }
+
+        // SystemClock#elapsedRealtime when handed to HeadlessTaskManager#startTask.
+        long getQueuedAt() {
+            return mQueuedAt;
+        }
+
+        void onQueued() {
+            mQueuedAt = SystemClock.elapsedRealtime();
+        }
+
+        List<Task> getMerged() {
+            return (mMerged != null) ? mMerged : Collections.<Task>emptyList();
+        }
+
+        int getReactTaskId() {
             return mReactTaskId;
         }
 
-        private HeadlessJsTaskConfig buildTaskConfig() {
-            return new HeadlessJsTaskConfig(mTaskName, mParams, mTimeout);
+        private HeadlessJsTaskConfig buildTaskConfig(int timeout) {
+            WritableMap params = mParams;
+            if (mMerged != null) {
+                WritableArray events = new WritableNativeArray();
+                events.pushMap(mParams);
+                for (Task task : mMerged) {
+                    events.pushMap(task.mParams);
+                }
+                params = new WritableNativeMap();
+                params.putString("name", BATCH_EVENT_NAME);
+                params.putArray("params", events);
+            }
+            // append our custom headless taskId.
+            params.putInt("_transistorHeadlessTaskId", mId);
+            return new HeadlessJsTaskConfig(mTaskName, params, timeout);
         }
 
         void onFinish() {
             if (mOnFinishCallback != null) {
                 mOnFinishCallback.onFinish(mId);
             }
+            if (mMerged != null) {
+                for (Task task : mMerged) {
+                    task.onFinish();
+                }
+            }
         }
 
         void onError(Exception e) {
@@ -413,6 +845,12 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
             private OnErrorCallback onErrorCallback;
             private WritableMap params;
             private int timeout = DEFAULT_TIMEOUT;
+            private boolean mergeable = false;
+            private int priority = PRIORITY_NORMAL;
+            private String event;
+            private boolean adaptiveTimeout = false;
+            private long receivedAt = 0;
+            private boolean persistent = false;
 
             public Builder setName(String name) {
                 this.name = name;
@@ -438,6 +876,49 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
                 this.timeout = timeout;
                 return this;
             }
+            /**
+             * Allow this Task to be coalesced with adjacent mergeable Tasks queued while the ReactContext launches.
+             */
+            public Builder setMergeable(boolean mergeable) {
+                this.mergeable = mergeable;
+                return this;
+            }
+            /**
+             * One of PRIORITY_HIGH, PRIORITY_NORMAL (default), PRIORITY_LOW.
+             */
+            public Builder setPriority(int priority) {
+                this.priority = Math.max(PRIORITY_HIGH, Math.min(PRIORITY_LOW, priority));
+                return this;
+            }
+            /**
+             * The event-type this Task delivers (eg: "location"), keying its latency statistics.
+             */
+            public Builder setEvent(String event) {
+                this.event = event;
+                return this;
+            }
+            /**
+             * Derive this Task's timeout from the observed latencies of its event-type, up to #setTimeout.
+             */
+            public Builder setAdaptiveTimeout(boolean adaptiveTimeout) {
+                this.adaptiveTimeout = adaptiveTimeout;
+                return this;
+            }
+            /**
+             * SystemClock#elapsedRealtime when the event this Task delivers was received, for HeadlessTaskMetrics.
+             */
+            public Builder setReceivedAt(long receivedAt) {
+                this.receivedAt = receivedAt;
+                return this;
+            }
+            /**
+             * Journal this Task to disk while queued, so it's replayed should the process be killed before it finishes
+             * (see HeadlessTaskJournal).  The Task's params are serialized by #build:  build off the main thread.
+             */
+            public Builder setPersistent(boolean persistent) {
+                this.persistent = persistent;
+                return this;
+            }
             public Task build() {
                 return new Task(this);
             }
@@ -450,6 +931,12 @@ public class HeadlessTaskManager implements HeadlessJsTaskEventListener {
         }
     }
 
+    public static class CapacityError extends Exception {
+        public CapacityError(Task task) {
+            super(HeadlessTaskManager.class.getName() + " queue full, evicted: " + task);
+        }
+    }
+
     public static class ContextError extends Exception {
         public ContextError(String message) {
             super(message);
@@ -0,0 +1,180 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import com.transistorsoft.rnbackgroundgeolocation.HeadlessTaskManager.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless pipeline instrumentation for HeadlessTaskManager#getMetrics.  All times are SystemClock#elapsedRealtime (monotonic) ms.
+ *
+ * Per event-type latency histograms of each stage of a Task:
+ *
+ *   build:  HeadlessEvent received -> Task handed to HeadlessTaskManager#startTask (params marshalling, off the main thread,
+ *           then the post back to the main looper).
+ *   queue:  #startTask -> Task#invoke (ReactContext launch, the drain delay, waiting for a concurrency slot).
+ *   run:    Task#invoke -> HeadlessJsTaskEventListener#onHeadlessJsTaskFinish (JS execution, or timeout).
+ *   total:  HeadlessEvent received -> onHeadlessJsTaskFinish.
+ *
+ * plus a histogram of ReactContext launch-times (cold-start cost) and queue-depth gauges (current / high-water mark).
+ */
+class HeadlessTaskMetrics {
+    // Histogram bucket upper-bounds (ms).  Values beyond the last fall in an overflow bucket.
+    private static final long[] BUCKETS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000};
+
+    private static final String STAGE_BUILD = "build";
+    private static final String STAGE_QUEUE = "queue";
+    private static final String STAGE_RUN = "run";
+    private static final String STAGE_TOTAL = "total";
+    private static final String UNKNOWN_EVENT = "unknown";
+
+    private final ConcurrentMap<String, EventMetrics> mEvents = new ConcurrentHashMap<>();
+    private final Histogram mReactContextLaunch = new Histogram();
+    private volatile int mMaxQueueDepth = 0;
+
+    void onReactContextLaunched(long duration) {
+        mReactContextLaunch.record(duration);
+    }
+
+    void onQueueDepth(int depth) {
+        if (depth > mMaxQueueDepth) {
+            mMaxQueueDepth = depth;
+        }
+    }
+
+    void onTaskStarted(Task task) {
+        if (task.getReceivedAt() > 0) {
+            getEventMetrics(task.getEvent()).get(STAGE_BUILD).record(task.getQueuedAt() - task.getReceivedAt());
+        }
+    }
+
+    void onTaskInvoked(Task task) {
+        getEventMetrics(task.getEvent()).get(STAGE_QUEUE).record(task.getInvokedAt() - task.getQueuedAt());
+    }
+
+    /**
+     * Record the run / total stages of task, and of any Tasks merged into it (which shared its invocation).
+     */
+    void onTaskFinished(Task task, long now) {
+        long invokedAt = task.getInvokedAt();
+        if (invokedAt <= 0) {
+            return;
+        }
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(task);
+        tasks.addAll(task.getMerged());
+        for (Task t : tasks) {
+            EventMetrics metrics = getEventMetrics(t.getEvent());
+            metrics.get(STAGE_RUN).record(now - invokedAt);
+            long receivedAt = (t.getReceivedAt() > 0) ? t.getReceivedAt() : t.getQueuedAt();
+            metrics.get(STAGE_TOTAL).record(now - receivedAt);
+        }
+    }
+
+    void onTaskDropped(Task task) {
+        getEventMetrics(task.getEvent()).dropped.incrementAndGet();
+    }
+
+    /**
+     * {maxQueueDepth, reactContextLaunch: Histogram, events: {<event>: {dropped, build, queue, run, total: Histogram}}}
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> events = new HashMap<>();
+        for (Map.Entry<String, EventMetrics> entry : mEvents.entrySet()) {
+            events.put(entry.getKey(), entry.getValue().toMap());
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("maxQueueDepth", mMaxQueueDepth);
+        map.put("reactContextLaunch", mReactContextLaunch.toMap());
+        map.put("events", events);
+        return map;
+    }
+
+    private EventMetrics getEventMetrics(String event) {
+        if (event == null) {
+            event = UNKNOWN_EVENT;
+        }
+        EventMetrics metrics = mEvents.get(event);
+        if (metrics == null) {
+            metrics = new EventMetrics();
+            EventMetrics existing = mEvents.putIfAbsent(event, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    private static class EventMetrics {
+        private final Map<String, Histogram> mStages = new HashMap<>();
+        final AtomicInteger dropped = new AtomicInteger(0);
+
+        EventMetrics() {
+            mStages.put(STAGE_BUILD, new Histogram());
+            mStages.put(STAGE_QUEUE, new Histogram());
+            mStages.put(STAGE_RUN, new Histogram());
+            mStages.put(STAGE_TOTAL, new Histogram());
+        }
+
+        Histogram get(String stage) {
+            return mStages.get(stage);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            for (Map.Entry<String, Histogram> entry : mStages.entrySet()) {
+                map.put(entry.getKey(), entry.getValue().toMap());
+            }
+            map.put("dropped", dropped.get());
+            return map;
+        }
+    }
+
+    /**
+     * Fixed-bucket latency histogram:  {count, sum, min, max, buckets: [upper-bounds], counts: [per-bucket, + overflow]}
+     */
+    private static class Histogram {
+        private final long[] mCounts = new long[BUCKETS.length + 1];
+        private long mCount = 0;
+        private long mSum = 0;
+        private long mMin = 0;
+        private long mMax = 0;
+
+        synchronized void record(long value) {
+            value = Math.max(0, value);
+            int bucket = 0;
+            while (bucket < BUCKETS.length && value > BUCKETS[bucket]) {
+                bucket++;
+            }
+            mCounts[bucket]++;
+            mMin = (mCount == 0) ? value : Math.min(mMin, value);
+            mMax = Math.max(mMax, value);
+            mSum += value;
+            mCount++;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            List<Object> buckets = new ArrayList<>(BUCKETS.length);
+            for (long bound : BUCKETS) {
+                buckets.add(bound);
+            }
+            List<Object> counts = new ArrayList<>(mCounts.length);
+            for (long count : mCounts) {
+                counts.add(count);
+            }
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", mCount);
+            map.put("sum", mSum);
+            map.put("min", mMin);
+            map.put("max", mMax);
+            map.put("buckets", buckets);
+            map.put("counts", counts);
+            return map;
+        }
+    }
+}
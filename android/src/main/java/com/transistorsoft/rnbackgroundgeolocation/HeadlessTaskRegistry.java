@@ -0,0 +1,185 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import com.transistorsoft.rnbackgroundgeolocation.HeadlessTaskManager.Task;
+
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live headless-tasks of HeadlessTaskManager, indexed for O(1) lookup both by our own taskId (#get, for #finishTask) and by
+ * RN's taskId (#getByReactId, for HeadlessJsTaskEventListener#onHeadlessJsTaskFinish).
+ *
+ * Tasks not yet handed to RN (eg: queued while the ReactContext launches, or waiting for a concurrency slot) are additionally
+ * held in one FIFO lane per Task priority (#addFirst queues ahead of the lane).  #poll drains the highest-priority lane
+ * first;  #shed drops from the lowest.
+ * A task removed while pending leaves a stale lane entry, skipped by #poll / #shed:  #mPending holds the live ones.
+ *
+ * onHeadlessJsTaskFinish receives the taskIds of *every* plugin's headless-tasks:  a foreign taskId is a single hash-miss
+ * in #mRunning (or nothing at all, when none of our tasks are running).
+ *
+ * The registry is bounded to #mCapacity tasks.  When full, #evict sheds a pending task to make room:  a LOW or NORMAL one,
+ * and a PRIORITY_HIGH one only when no other is pending (running tasks are never evicted:  RN must still finish them).
+ * #add refuses a task while full.
+ */
+class HeadlessTaskRegistry {
+    static final int DEFAULT_CAPACITY = 10000;
+
+    private final Map<Integer, Task> mTasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Task> mRunning = new ConcurrentHashMap<>();
+    private final Deque<Task>[] mLanes;
+    private final AtomicInteger mSize = new AtomicInteger(0);
+    // Ids of the tasks pending in a lane.
+    private final Set<Integer> mPending = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    private final AtomicInteger mDroppedCount = new AtomicInteger(0);
+    private final int mCapacity;
+
+    @SuppressWarnings("unchecked")
+    HeadlessTaskRegistry(int capacity) {
+        mCapacity = Math.max(1, capacity);
+        mLanes = new Deque[Task.PRIORITY_LOW + 1];
+        for (int i = 0; i < mLanes.length; i++) {
+            mLanes[i] = new LinkedBlockingDeque<>();
+        }
+    }
+
+    /**
+     * Register a task, queueing it for #poll when pending is true.
+     * @return false (registering nothing, counted as dropped) when full:  see #evict.
+     */
+    boolean add(Task task, boolean pending) {
+        return add(task, pending, false);
+    }
+
+    /**
+     * Register a pending task at the head of its lane, ahead of those already waiting (eg: a task replayed from the journal,
+     * which was queued before them).
+     * @see #add(Task, boolean)
+     */
+    boolean addFirst(Task task) {
+        return add(task, true, true);
+    }
+
+    private boolean add(Task task, boolean pending, boolean first) {
+        if (isFull() && !mTasks.containsKey(task.getId())) {
+            mDroppedCount.incrementAndGet();
+            return false;
+        }
+        if (mTasks.put(task.getId(), task) == null) {
+            mSize.incrementAndGet();
+        }
+        if (pending) {
+            mPending.add(task.getId());
+            if (first) {
+                mLanes[task.getPriority()].addFirst(task);
+            } else {
+                mLanes[task.getPriority()].add(task);
+            }
+        }
+        return true;
+    }
+
+    boolean isFull() {
+        return mSize.get() >= mCapacity;
+    }
+
+    /**
+     * Drop a pending task to make room for another:  the oldest of the lowest-priority lane, a PRIORITY_HIGH one only when
+     * no other is pending.
+     * @return the dropped Task, or null if none is pending (every task is running).
+     */
+    Task evict() {
+        Task evicted = shed(Task.PRIORITY_NORMAL);
+        return (evicted != null) ? evicted : shed(Task.PRIORITY_HIGH);
+    }
+
+    /**
+     * Index a task by its RN taskId once RN has started it.
+     */
+    void onInvoked(Task task) {
+        if (mTasks.containsKey(task.getId())) {
+            mRunning.put(task.getReactTaskId(), task);
+        }
+    }
+
+    /**
+     * Take the oldest pending task of the highest-priority lane (null if none).
+     */
+    Task poll() {
+        for (Deque<Task> lane : mLanes) {
+            Task task;
+            while ((task = lane.poll()) != null) {
+                // Skip tasks removed while pending.
+                if (mPending.remove(task.getId())) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drop the oldest pending task of the lowest-priority lane, considering lanes no more important than minPriority.
+     * @return the dropped Task, or null if none.
+     */
+    Task shed(int minPriority) {
+        for (int priority = mLanes.length - 1; priority >= minPriority; priority--) {
+            Task task;
+            while ((task = mLanes[priority].poll()) != null) {
+                if (mPending.contains(task.getId()) && remove(task)) {
+                    mDroppedCount.incrementAndGet();
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    Task get(int taskId) {
+        return mTasks.get(taskId);
+    }
+
+    Task getByReactId(int reactTaskId) {
+        if (mRunning.isEmpty()) {
+            return null;
+        }
+        return mRunning.get(reactTaskId);
+    }
+
+    boolean remove(Task task) {
+        if (!mTasks.remove(task.getId(), task)) {
+            return false;
+        }
+        mSize.decrementAndGet();
+        if (task.getReactTaskId() > 0) {
+            mRunning.remove(task.getReactTaskId(), task);
+        }
+        // A removed pending task stays in its lane until #poll / #shed skips it, but no longer counts as pending.
+        mPending.remove(task.getId());
+        return true;
+    }
+
+    int size() {
+        return mSize.get();
+    }
+
+    boolean isEmpty() {
+        return mSize.get() == 0;
+    }
+
+    int getRunningCount() {
+        return mRunning.size();
+    }
+
+    int getPendingCount() {
+        return mPending.size();
+    }
+
+    int getDroppedCount() {
+        return mDroppedCount.get();
+    }
+}
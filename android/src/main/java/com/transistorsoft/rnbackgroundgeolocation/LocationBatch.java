@@ -0,0 +1,114 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native buffer for the optional "locationBatch" delivery mode.
+ *
+ * With batching disabled (the default), the module emits one "location" event per fix.  When enabled, each fix is
+ * appended here and the whole buffer is delivered to Javascript as a single array once either #mMaxSize records
+ * have accumulated or #mMaxWait ms have elapsed since the first buffered record, whichever comes first.
+ *
+ * The module forces an early #flush on motionchange (so the batch is never delivered *after* the state-change it preceded)
+ * and when the host Activity pauses.
+ */
+class LocationBatch {
+    private static final int DEFAULT_MAX_SIZE = 10;
+    private static final long DEFAULT_MAX_WAIT = 30000;
+
+    interface OnFlushCallback {
+        void onFlush(WritableArray locations);
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<WritableMap> mBuffer = new ArrayList<>();
+    private final OnFlushCallback mOnFlushCallback;
+    private final Runnable mFlushRunnable = this::flush;
+
+    private boolean mEnabled = false;
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private long mMaxWait = DEFAULT_MAX_WAIT;
+
+    LocationBatch(OnFlushCallback callback) {
+        mOnFlushCallback = callback;
+    }
+
+    /**
+     * Apply {enabled, maxSize, maxWait}.  Any records buffered under the previous settings are flushed first.
+     */
+    void configure(ReadableMap options) {
+        flush();
+        synchronized (mBuffer) {
+            if (options.hasKey("enabled")) { mEnabled = options.getBoolean("enabled"); }
+            if (options.hasKey("maxSize")) { mMaxSize = Math.max(1, options.getInt("maxSize")); }
+            if (options.hasKey("maxWait")) { mMaxWait = Math.max(0, (long) options.getDouble("maxWait")); }
+        }
+    }
+
+    boolean isEnabled() {
+        synchronized (mBuffer) {
+            return mEnabled;
+        }
+    }
+
+    /**
+     * Buffer a location.  Returns false when batching is disabled, in which case the caller should deliver the record itself.
+     */
+    boolean add(WritableMap location) {
+        boolean isFull;
+        synchronized (mBuffer) {
+            if (!mEnabled) {
+                return false;
+            }
+            mBuffer.add(location);
+            isFull = mBuffer.size() >= mMaxSize;
+            if (!isFull && mBuffer.size() == 1) {
+                // First record of a new batch starts the clock.
+                mHandler.postDelayed(mFlushRunnable, mMaxWait);
+            }
+        }
+        if (isFull) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Deliver all buffered records now (no-op when empty).
+     */
+    void flush() {
+        List<WritableMap> records;
+        synchronized (mBuffer) {
+            mHandler.removeCallbacks(mFlushRunnable);
+            if (mBuffer.isEmpty()) {
+                return;
+            }
+            records = new ArrayList<>(mBuffer);
+            mBuffer.clear();
+        }
+        WritableArray locations = new WritableNativeArray();
+        for (WritableMap location : records) {
+            locations.pushMap(location);
+        }
+        mOnFlushCallback.onFlush(locations);
+    }
+
+    /**
+     * Discard any buffered records without delivering them.
+     */
+    void clear() {
+        synchronized (mBuffer) {
+            mHandler.removeCallbacks(mFlushRunnable);
+            mBuffer.clear();
+        }
+    }
+}
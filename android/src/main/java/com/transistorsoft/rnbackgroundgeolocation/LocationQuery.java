@@ -0,0 +1,178 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import com.transistorsoft.locationmanager.data.LocationModel;
+import com.transistorsoft.locationmanager.data.SQLQuery;
+
+import org.json.JSONObject;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+/**
+ * Cursor-paged read of persisted locations:  an SQLQuery (start, end, order, limit) plus a cursor.
+ *
+ * The cursor is an opaque "<timestamp>:<uuid>" key of the last record of the previous page.  Keying on the record
+ * rather than an offset keeps pages stable while #sync / #destroyLocation remove records between calls.
+ *
+ * The SDK's documented #getLocations returns every record, so each page is selected from all of them:  O(records)
+ * time, but only limit + 1 records are retained while scanning (bounded heap) and only the page is marshalled
+ * across the bridge.
+ */
+class LocationQuery {
+    static final int DEFAULT_LIMIT = 100;
+
+    private static final String ISO_8601 = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+    private final long mStart;
+    private final long mEnd;
+    private final int mOrder;
+    private final int mLimit;
+    private final Key mAfter;
+    private final Comparator<Key> mComparator;
+
+    /**
+     * @param query start, end, order and limit (see #parseSQLQuery)
+     * @param cursor of the previous page, or null for the first.
+     * @throws IllegalArgumentException for an invalid cursor.
+     */
+    LocationQuery(SQLQuery query, String cursor) {
+        mStart = query.getStart();
+        mEnd = query.getEnd();
+        mOrder = (query.getOrder() == SQLQuery.ORDER_DESC) ? SQLQuery.ORDER_DESC : SQLQuery.ORDER_ASC;
+        mLimit = (query.getLimit() > 0) ? query.getLimit() : DEFAULT_LIMIT;
+        mAfter = (cursor != null) ? Key.parse(cursor) : null;
+        mComparator = (mOrder == SQLQuery.ORDER_DESC) ? Collections.<Key>reverseOrder() : Comparator.<Key>naturalOrder();
+    }
+
+    /**
+     * A single page of results.  #cursor is null when there are no more records.
+     */
+    static class Page {
+        final List<LocationModel> records;
+        final String cursor;
+
+        Page(List<LocationModel> records, String cursor) {
+            this.records = records;
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * Select the next page from records (in any order).
+     * @throws IllegalArgumentException for a record whose timestamp can't be parsed (it could be neither filtered nor keyed).
+     */
+    Page execute(List<LocationModel> records) {
+        SimpleDateFormat isoFormat = new SimpleDateFormat(ISO_8601, Locale.US);
+        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Keep the first (limit + 1) records in page-order:  the heap head is the *worst* of those kept.
+        // The extra record tells us whether another page follows.
+        int capacity = mLimit + 1;
+        PriorityQueue<Entry> heap = new PriorityQueue<>(capacity, (a, b) -> mComparator.compare(b.key, a.key));
+
+        for (LocationModel record : records) {
+            JSONObject json = record.json;
+            if (json == null) {
+                continue;
+            }
+            String uuid = json.optString("uuid", "");
+            long timestamp = parseTimestamp(json.opt("timestamp"), isoFormat, uuid);
+            if ((mStart > 0 && timestamp < mStart) || (mEnd > 0 && timestamp > mEnd)) {
+                continue;
+            }
+            Key key = new Key(timestamp, uuid);
+            if (mAfter != null && mComparator.compare(key, mAfter) <= 0) {
+                continue;
+            }
+            if (heap.size() < capacity) {
+                heap.add(new Entry(key, record));
+            } else if (mComparator.compare(key, heap.peek().key) < 0) {
+                heap.poll();
+                heap.add(new Entry(key, record));
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(heap);
+        Collections.sort(entries, (a, b) -> mComparator.compare(a.key, b.key));
+
+        boolean hasMore = entries.size() > mLimit;
+        if (hasMore) {
+            entries = entries.subList(0, mLimit);
+        }
+        List<LocationModel> page = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            page.add(entry.record);
+        }
+        String cursor = hasMore ? entries.get(entries.size() - 1).key.toString() : null;
+        return new Page(page, cursor);
+    }
+
+    /**
+     * Location timestamps are ISO-8601 strings by default, or epoch ms with PersistenceConfig.timestampFormat: "epoch".
+     */
+    private static long parseTimestamp(Object value, SimpleDateFormat isoFormat, String uuid) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof String) {
+            try {
+                return isoFormat.parse((String) value).getTime();
+            } catch (ParseException e) {
+                // Fall through
+            }
+        }
+        throw new IllegalArgumentException("Invalid timestamp of location " + uuid + ": " + value);
+    }
+
+    private static class Key implements Comparable<Key> {
+        final long timestamp;
+        final String uuid;
+
+        Key(long timestamp, String uuid) {
+            this.timestamp = timestamp;
+            this.uuid = uuid;
+        }
+
+        /**
+         * @throws IllegalArgumentException unless cursor is a "<timestamp>:<uuid>" of #toString, with a positive timestamp.
+         */
+        static Key parse(String cursor) {
+            int index = cursor.indexOf(':');
+            long timestamp;
+            try {
+                timestamp = (index > 0) ? Long.parseLong(cursor.substring(0, index)) : 0;
+            } catch (NumberFormatException e) {
+                timestamp = 0;
+            }
+            if (timestamp <= 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new Key(timestamp, cursor.substring(index + 1));
+        }
+
+        @Override public int compareTo(Key other) {
+            int result = Long.compare(timestamp, other.timestamp);
+            return (result != 0) ? result : uuid.compareTo(other.uuid);
+        }
+
+        @Override public String toString() {
+            return timestamp + ":" + uuid;
+        }
+    }
+
+    private static class Entry {
+        final Key key;
+        final LocationModel record;
+
+        Entry(Key key, LocationModel record) {
+            this.key = key;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.transistorsoft.rnbackgroundgeolocation;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The vertices of a polygon geofence, decoded from #buildGeofence's config straight into a flat
+ * [lat, lng, lat, lng, ...] double[], rejecting out-of-range vertices and polygons enclosing no area (by their signed
+ * shoelace area) before they reach the SDK.  Accepted forms of config.vertices:
+ *
+ *   [lat, lng, lat, lng, ...]       flat numbers (one bridge read per coordinate, no per-vertex arrays)
+ *   "_p~iF~ps|U_ulLnnqC..."          a Google encoded-polyline (precision 1e5)
+ *   [[lat, lng], [lat, lng], ...]   rows (the original form)
+ *
+ * TSGeofence.Builder#setVertices takes List<List<Double>>:  #asList builds that shape as plain, mutable ArrayLists.
+ */
+final class PolygonVertices {
+    // Twice the shoelace area (degrees²) at or below which a polygon encloses no area:  about 0.01m² at the equator.
+    private static final double MIN_AREA = 1e-12;
+
+    final double[] coordinates;
+
+    private PolygonVertices(double[] coordinates) {
+        this.coordinates = coordinates;
+        for (int i = 0; i < coordinates.length; i += 2) {
+            double lat = coordinates[i];
+            double lng = coordinates[i + 1];
+            if (!(lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180)) {
+                throw new IllegalArgumentException("Invalid vertex [" + lat + ", " + lng + "] at index " + (i / 2));
+            }
+        }
+        if (coordinates.length > 0 && (coordinates.length < 6 || Math.abs(signedArea(coordinates)) <= MIN_AREA)) {
+            throw new IllegalArgumentException("Polygon vertices enclose no area:  at least 3 non-collinear vertices required");
+        }
+    }
+
+    /**
+     * Twice the signed (shoelace) area of the polygon:  positive when its vertices wind counter-clockwise (lng as x,
+     * lat as y), zero when they're collinear.
+     */
+    static double signedArea(double[] coordinates) {
+        int n = coordinates.length / 2;
+        double area = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            area += coordinates[i * 2 + 1] * coordinates[j * 2] - coordinates[j * 2 + 1] * coordinates[i * 2];
+        }
+        return area;
+    }
+
+    /**
+     * Read config[key] in any of the accepted forms.
+     * @throws IllegalArgumentException for a malformed value or an out-of-range vertex.
+     */
+    static PolygonVertices read(ReadableMap config, String key) {
+        if (config.getType(key) == ReadableType.String) {
+            return new PolygonVertices(decodePolyline(config.getString(key)));
+        }
+        ReadableArray array = config.getArray(key);
+        if (array == null || array.size() == 0) {
+            return new PolygonVertices(new double[0]);
+        }
+        double[] coordinates;
+        if (array.getType(0) == ReadableType.Array) {
+            coordinates = new double[array.size() * 2];
+            for (int i = 0; i < array.size(); i++) {
+                ReadableArray row = array.getArray(i);
+                coordinates[i * 2] = row.getDouble(0);
+                coordinates[i * 2 + 1] = row.getDouble(1);
+            }
+        } else {
+            if (array.size() % 2 != 0) {
+                throw new IllegalArgumentException("Flat vertices must be [lat, lng, lat, lng, ...]");
+            }
+            coordinates = new double[array.size()];
+            for (int i = 0; i < coordinates.length; i++) {
+                coordinates[i] = array.getDouble(i);
+            }
+        }
+        return new PolygonVertices(coordinates);
+    }
+
+    /**
+     * Wrap flat [lat, lng, lat, lng, ...] coordinates decoded elsewhere (eg: GeofenceImporter).
+     * @throws IllegalArgumentException for an out-of-range vertex.
+     */
+    static PolygonVertices of(double[] coordinates) {
+        return new PolygonVertices(coordinates);
+    }
+
+    /**
+     * Decode a Google encoded-polyline:  per vertex, the lat then lng delta from the previous vertex, each a
+     * zig-zag varint of 5-bit chunks offset by 63.
+     */
+    static double[] decodePolyline(String encoded) {
+        int length = encoded.length();
+        // Count the values (each ends in a chunk without the 0x20 continuation bit) to size the array exactly.
+        int values = 0;
+        for (int i = 0; i < length; i++) {
+            int chunk = encoded.charAt(i) - 63;
+            if (chunk < 0 || chunk > 0x3f) {
+                throw new IllegalArgumentException("Invalid encoded polyline character at index " + i);
+            }
+            if (chunk < 0x20) {
+                values++;
+            }
+        }
+        if (values % 2 != 0 || (length > 0 && encoded.charAt(length - 1) - 63 >= 0x20)) {
+            throw new IllegalArgumentException("Truncated encoded polyline");
+        }
+        double[] coordinates = new double[values];
+        int index = 0;
+        long lat = 0, lng = 0;
+        for (int v = 0; v < values; v++) {
+            long result = 0;
+            int shift = 0;
+            int chunk;
+            do {
+                chunk = encoded.charAt(index++) - 63;
+                result |= (long) (chunk & 0x1f) << shift;
+                shift += 5;
+            } while (chunk >= 0x20);
+            long delta = ((result & 1) != 0) ? ~(result >> 1) : (result >> 1);
+            if (v % 2 == 0) {
+                lat += delta;
+                coordinates[v] = lat / 1e5;
+            } else {
+                lng += delta;
+                coordinates[v] = lng / 1e5;
+            }
+        }
+        return coordinates;
+    }
+
+    int size() {
+        return coordinates.length / 2;
+    }
+
+    List<List<Double>> asList() {
+        List<List<Double>> vertices = new ArrayList<>(size());
+        for (int i = 0; i < coordinates.length; i += 2) {
+            List<Double> vertex = new ArrayList<>(2);
+            vertex.add(coordinates[i]);
+            vertex.add(coordinates[i + 1]);
+            vertices.add(vertex);
+        }
+        return vertices;
+    }
+}
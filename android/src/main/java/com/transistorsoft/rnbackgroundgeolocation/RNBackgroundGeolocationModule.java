@@ -17,8 +17,6 @@ import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
-import com.facebook.react.bridge.ReadableMapKeySetIterator;
-import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
@@ -69,12 +67,24 @@ import com.transistorsoft.locationmanager.util.Sensors;
 import com.transistorsoft.locationmanager.logger.TSLog;
 import com.transistorsoft.locationmanager.device.DeviceSettingsRequest;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Created by chris on 2015-10-30.
@@ -95,14 +105,36 @@ public class RNBackgroundGeolocationModule
     public static final int REQUEST_ACTION_START_GEOFENCES      = 3;
 
     private static final String EVENT_WATCHPOSITION = "watchposition";
+    private static final String EVENT_LOCATIONBATCH = "locationbatch";
+    // #setConfig option:  resolve only the changed config keys rather than the entire state.
+    private static final String OPTION_DELTA = "delta";
+    // Longest wait for the SDK to add one #importGeofences batch.
+    private static final long IMPORT_BATCH_TIMEOUT = 60000;
+
+    // Runs #importGeofences, one import at a time, off the main and bridge threads.
+    private static final ExecutorService sImportExecutor = Executors.newSingleThreadExecutor();
 
     private boolean mInitialized = false;
     private boolean mReady = false;
+    // Converted #getState snapshot.  Cached only once #ready has registered the event callbacks which invalidate it.
+    private WritableMap mState;
+    // Spatial index of the stored geofences for #queryGeofences.  Discarded (see #invalidateGeofenceIndex) whenever
+    // geofences are added or removed, and rebuilt at the next query.
+    private volatile GeofenceIndex<TSGeofence> mGeofenceIndex;
+    private final AtomicInteger mGeofenceIndexVersion = new AtomicInteger(0);
 
     // Map of event listener-counts
     private final HashMap<String, Integer> mListeners = new HashMap<>();
     private List<String> mEvents = new ArrayList<>();
 
+    // Optional batched delivery of location events (see #setLocationBatch).
+    private final LocationBatch mLocationBatch = new LocationBatch(new LocationBatch.OnFlushCallback() {
+        @Override public void onFlush(WritableArray locations) {
+            if (hasListeners(EVENT_LOCATIONBATCH)) {
+                sendEvent(EVENT_LOCATIONBATCH, locations);
+            }
+        }
+    });
 
     public RNBackgroundGeolocationModule(ReactApplicationContext reactContext) {
         super(reactContext);
@@ -131,12 +163,21 @@ public class RNBackgroundGeolocationModule
         mEvents.add(EventName.ENABLEDCHANGE);
         mEvents.add(EventName.NOTIFICATIONACTION);
         mEvents.add(TSAuthorization.NAME);
+        mEvents.add(EVENT_LOCATIONBATCH);
     }
 
     @Override
     public void initialize() {
         // do nothing
     }
+
+    @Override
+    public void invalidate() {
+        // The JS runtime is being torn down:  every Javascript subscription goes with it.
+        removeAllListeners();
+        super.invalidate();
+    }
+
     @Override
     public String getName() {
         return "RNBackgroundGeolocation";
@@ -168,7 +209,13 @@ public class RNBackgroundGeolocationModule
     private class LocationCallback implements TSLocationCallback {
         @Override
         public void onLocation(LocationEvent locationEvent) {
-            sendEvent(EventName.LOCATION, mapToWritableMap(locationEvent.toMap()));
+            if (!hasListeners(mLocationBatch.isEnabled() ? EVENT_LOCATIONBATCH : EventName.LOCATION)) {
+                return;
+            }
+            WritableMap params = mapToWritableMap(locationEvent.toMap());
+            if (!mLocationBatch.add(params)) {
+                sendEvent(EventName.LOCATION, params);
+            }
         }
 
         @Override public void onError(Integer error) {
@@ -182,6 +229,12 @@ public class RNBackgroundGeolocationModule
     private class MotionChangeCallback implements TSLocationCallback {
         @Override
         public void onLocation(LocationEvent locationEvent) {
+            invalidateState();
+            // Deliver any batched locations ahead of the state-change.
+            mLocationBatch.flush();
+            if (!hasListeners(EventName.MOTIONCHANGE)) {
+                return;
+            }
             WritableMap params = new WritableNativeMap();
             params.putBoolean("isMoving", locationEvent.isMoving());
             params.putMap("location", mapToWritableMap(locationEvent.toMap()));
@@ -198,6 +251,9 @@ public class RNBackgroundGeolocationModule
      */
     private class ActivityChangeCallback implements TSActivityChangeCallback {
         @Override public void onActivityChange(ActivityChangeEvent event) {
+            if (!hasListeners(EventName.ACTIVITYCHANGE)) {
+                return;
+            }
             sendEvent(EventName.ACTIVITYCHANGE, mapToWritableMap(event.toMap()));
         }
     }
@@ -207,6 +263,9 @@ public class RNBackgroundGeolocationModule
      */
     private class LocationFilterCallback implements TSLocationFilterCallback {
         @Override public void onLocationFilter(LocationFilterEvent event) {
+            if (!hasListeners(EventName.LOCATIONFILTER)) {
+                return;
+            }
             sendEvent(EventName.LOCATIONFILTER, mapToWritableMap(event.toMap()));
         }
     }
@@ -216,6 +275,9 @@ public class RNBackgroundGeolocationModule
      */
     private class LocationProviderChangeCallback implements TSLocationProviderChangeCallback {
         @Override public void onLocationProviderChange(LocationProviderChangeEvent event) {
+            if (!hasListeners(EventName.PROVIDERCHANGE)) {
+                return;
+            }
             WritableMap params = new WritableNativeMap();
             params.putBoolean("network", event.isNetworkEnabled());
             params.putBoolean("gps", event.isGPSEnabled());
@@ -231,6 +293,9 @@ public class RNBackgroundGeolocationModule
      */
     private class ConnectivityChangeCallback implements TSConnectivityChangeCallback {
         @Override public void onConnectivityChange(ConnectivityChangeEvent event) {
+            if (!hasListeners(EventName.CONNECTIVITYCHANGE)) {
+                return;
+            }
             WritableMap params = new WritableNativeMap();
             params.putBoolean("connected", event.hasConnection());
             sendEvent(EventName.CONNECTIVITYCHANGE, params);
@@ -241,6 +306,10 @@ public class RNBackgroundGeolocationModule
      */
     private class EnabledChangeCallback implements TSEnabledChangeCallback {
         @Override public void onEnabledChange(boolean enabled) {
+            invalidateState();
+            if (!hasListeners(EventName.ENABLEDCHANGE)) {
+                return;
+            }
             sendEvent(EventName.ENABLEDCHANGE, enabled);
         }
     }
@@ -249,6 +318,9 @@ public class RNBackgroundGeolocationModule
      */
     private class NotificationActionCallback implements TSNotificationActionCallback {
         @Override public void onClick(String buttonId) {
+            if (!hasListeners(EventName.NOTIFICATIONACTION)) {
+                return;
+            }
             sendEvent(EventName.NOTIFICATIONACTION, buttonId);
         }
     }
@@ -257,6 +329,9 @@ public class RNBackgroundGeolocationModule
      */
     private class GeofencesChangeCallback implements TSGeofencesChangeCallback {
         @Override public void onGeofencesChange(GeofencesChangeEvent event) {
+            if (!hasListeners(EventName.GEOFENCESCHANGE)) {
+                return;
+            }
             // TODO
             WritableMap params = new WritableNativeMap();
             WritableArray on = new WritableNativeArray();
@@ -270,6 +345,9 @@ public class RNBackgroundGeolocationModule
      */
     private class GeofenceCallback implements TSGeofenceCallback {
         @Override public void onGeofence(GeofenceEvent event) {
+            if (!hasListeners(EventName.GEOFENCE)) {
+                return;
+            }
             sendEvent(EventName.GEOFENCE, mapToWritableMap(event.toMap()));
         }
     }
@@ -279,6 +357,9 @@ public class RNBackgroundGeolocationModule
      */
     private class HeartbeatCallback implements TSHeartbeatCallback {
         @Override public void onHeartbeat(HeartbeatEvent event) {
+            if (!hasListeners(EventName.HEARTBEAT)) {
+                return;
+            }
             sendEvent(EventName.HEARTBEAT, mapToWritableMap(event.toMap()));
         }
     }
@@ -288,6 +369,9 @@ public class RNBackgroundGeolocationModule
      */
     private class HttpResponseCallback implements TSHttpResponseCallback {
         @Override public void onHttpResponse(HttpResponse response) {
+            if (!hasListeners(EventName.HTTP)) {
+                return;
+            }
             WritableMap params = new WritableNativeMap();
             params.putBoolean("success", response.isSuccess());
             params.putInt("status", response.status);
@@ -301,8 +385,12 @@ public class RNBackgroundGeolocationModule
      */
     private class ScheduleCallback implements TSScheduleCallback {
         @Override public void onSchedule(ScheduleEvent event) {
-            TSConfig config = TSConfig.getInstance(getReactApplicationContext());
-            sendEvent(EventName.SCHEDULE, mapToWritableMap(config.toMap(false)));
+            invalidateState();
+            if (!hasListeners(EventName.SCHEDULE)) {
+                return;
+            }
+            ReactApplicationContext context = getReactApplicationContext();
+            sendEvent(EventName.SCHEDULE, HeadlessTask.isCompactEvents(context) ? CompactState.write(TSConfig.getInstance(context), event) : getState());
         }
     }
 
@@ -311,6 +399,9 @@ public class RNBackgroundGeolocationModule
     */
     private class PowerSaveChangeCallack implements TSPowerSaveChangeCallback {
         @Override public void onPowerSaveChange(Boolean isPowerSaveMode) {
+            if (!hasListeners(EventName.POWERSAVECHANGE)) {
+                return;
+            }
             sendEvent(EventName.POWERSAVECHANGE, isPowerSaveMode);
         }
     }
@@ -320,6 +411,11 @@ public class RNBackgroundGeolocationModule
      */
     private class AuthorizationCallback implements TSAuthorizationCallback {
         @Override public void onResponse(AuthorizationEvent event) {
+            // A refreshed token updates Config.authorization.
+            invalidateState();
+            if (!hasListeners(TSAuthorization.NAME)) {
+                return;
+            }
             sendEvent(TSAuthorization.NAME, mapToWritableMap(event.toMap()));
         }
     }
@@ -338,13 +434,19 @@ public class RNBackgroundGeolocationModule
 
     @Override
     public void onHostPause() {
-        
+        mLocationBatch.flush();
     }
     @Override
     public void onHostDestroy() {
+        mLocationBatch.clear();
         mInitialized = false;
         mReady = false;
-        removeAllListeners();
+        invalidateState();
+        // The Activity can be destroyed while the JS runtime (and its subscriptions) lives on, eg: back-button exit
+        // while tracking.  Only forget our listener-counts when the runtime is really gone; otherwise see #invalidate.
+        if (!getReactApplicationContext().hasActiveReactInstance()) {
+            removeAllListeners();
+        }
     }
 
     @Override
@@ -383,6 +485,7 @@ public class RNBackgroundGeolocationModule
         }
         mReady = true;
         registerEvents();
+        invalidateState();
 
         if (config.isFirstBoot()) {
             config.updateWithJSONObject(mapToJson(setHeadlessJobService(params)));
@@ -404,7 +507,10 @@ public class RNBackgroundGeolocationModule
             }
         }
         getAdapter().ready(new TSCallback() {
-            @Override public void onSuccess() { response.resolve(getState()); }
+            @Override public void onSuccess() {
+                invalidateState();
+                response.resolve(getState());
+            }
             @Override public void onFailure(String error) { response.reject(error); }
         });
     }
@@ -416,16 +522,48 @@ public class RNBackgroundGeolocationModule
         config.updateWithJSONObject(mapToJson(setHeadlessJobService(params)));
 
         getAdapter().ready(new TSCallback() {
-            @Override public void onSuccess() { response.resolve(getState()); }
+            @Override public void onSuccess() {
+                invalidateState();
+                response.resolve(getState());
+            }
             @Override public void onFailure(String error) { response.reject(error); }
         });
     }
 
+    /**
+     * Applies only the keys which differ from the current config (see ConfigDiff):  when none do, nothing is persisted.
+     * With {delta: true}, resolves just the changed keys (with their applied values) rather than the entire state.
+     */
     @ReactMethod
     public void setConfig(ReadableMap params, final Promise response) {
         TSConfig config = TSConfig.getInstance(getReactApplicationContext());
-        config.updateWithJSONObject(mapToJson(params));
-        response.resolve(getState());
+        JSONObject update = mapToJson(params);
+        boolean delta = update.optBoolean(OPTION_DELTA, false);
+        update.remove(OPTION_DELTA);
+
+        JSONObject changes;
+        try {
+            changes = ConfigDiff.changes(new JSONObject(config.toMap(false)), update);
+        } catch (JSONException e) {
+            TSLog.w(TSLog.warn("setConfig failed to diff config: " + e.getMessage()));
+            changes = update;
+        }
+        if (changes.length() > 0) {
+            config.updateWithJSONObject(changes);
+            invalidateState();
+        }
+        if (!delta) {
+            response.resolve(getState());
+            return;
+        }
+        Map<String, Object> state = config.toMap(false);
+        Map<String, Object> changed = new HashMap<>();
+        Iterator<String> keys = changes.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            changed.put(key, state.get(key));
+        }
+        response.resolve(mapToWritableMap(changed));
     }
 
     @ReactMethod
@@ -433,13 +571,17 @@ public class RNBackgroundGeolocationModule
         TSConfig config = TSConfig.getInstance(getReactApplicationContext());
         config.reset();
         config.updateWithJSONObject(mapToJson(setHeadlessJobService(defaultConfig)));
+        invalidateState();
         response.resolve(getState());
     }
 
     @ReactMethod
     public void start(final Promise response) {
         getAdapter().start(new TSCallback() {
-            @Override public void onSuccess() { response.resolve(getState()); }
+            @Override public void onSuccess() {
+                invalidateState();
+                response.resolve(getState());
+            }
             @Override public void onFailure(String error) { response.reject(error); }
         });
     }
@@ -447,6 +589,7 @@ public class RNBackgroundGeolocationModule
     @ReactMethod
     public void startSchedule(Promise response) {
         if (getAdapter().startSchedule()) {
+            invalidateState();
             response.resolve(getState());
         } else {
             response.reject("Failed to start schedule.  Did you configure a #schedule?");
@@ -456,13 +599,17 @@ public class RNBackgroundGeolocationModule
     @ReactMethod
     public void stopSchedule(Promise response) {
         getAdapter().stopSchedule();
+        invalidateState();
         response.resolve(getState());
     }
 
     @ReactMethod
     public void startGeofences(final Promise response) {
         getAdapter().startGeofences(new TSCallback() {
-            @Override public void onSuccess() { response.resolve(getState()); }
+            @Override public void onSuccess() {
+                invalidateState();
+                response.resolve(getState());
+            }
             @Override public void onFailure(String error) { response.reject(error); }
         });
     }
@@ -470,7 +617,10 @@ public class RNBackgroundGeolocationModule
     @ReactMethod
     public void stop(final Promise response) {
         getAdapter().stop(new TSCallback() {
-            @Override public void onSuccess() { response.resolve(getState()); }
+            @Override public void onSuccess() {
+                invalidateState();
+                response.resolve(getState());
+            }
             @Override public void onFailure(String error) { response.reject(error); }
         });
     }
@@ -478,7 +628,10 @@ public class RNBackgroundGeolocationModule
     @ReactMethod
     public void changePace(final boolean moving, final Promise response) {
         getAdapter().changePace(moving, new TSCallback() {
-            @Override public void onSuccess() { response.resolve(moving); }
+            @Override public void onSuccess() {
+                invalidateState();
+                response.resolve(moving);
+            }
             @Override public void onFailure(String error) { response.reject(error); }
         });
     }
@@ -488,16 +641,22 @@ public class RNBackgroundGeolocationModule
         response.resolve(getState());
     }
 
+    /**
+     * Configure batched delivery of location events:  {enabled: boolean, maxSize: number, maxWait: number (ms)}.
+     * While enabled, locations are emitted as an Array via the "locationbatch" event rather than one-at-a-time via "location".
+     */
+    @ReactMethod
+    public void setLocationBatch(ReadableMap options, final Promise response) {
+        mLocationBatch.configure(options);
+        response.resolve(true);
+    }
+
     @ReactMethod
     public void getLocations(final Promise response) {
         getAdapter().getLocations(new TSGetLocationsCallback() {
             @Override public void onSuccess(List<LocationModel> records) {
                 try {
-                    JSONArray data = new JSONArray();
-                    for (LocationModel location : records) {
-                        data.put(location.json);
-                    }
-                    response.resolve(convertJsonToArray(data));
+                    response.resolve(BridgeConverter.locationsToWritableArray(records));
                 } catch (JSONException e) {
                     e.printStackTrace();
                     response.reject(e.getMessage());
@@ -507,6 +666,36 @@ public class RNBackgroundGeolocationModule
         });
     }
 
+    /**
+     * Fetch one page of persisted locations:  {cursor, limit, start, end, order}.
+     * Resolves {locations: [...], cursor: String|null}.  Provide the returned cursor to fetch the following page.
+     */
+    @ReactMethod
+    public void getLocationsPage(ReadableMap params, final Promise response) {
+        final LocationQuery query;
+        try {
+            String cursor = (params.hasKey("cursor") && !params.isNull("cursor")) ? params.getString("cursor") : null;
+            query = new LocationQuery(parseSQLQuery(params), cursor);
+        } catch (IllegalArgumentException e) {
+            response.reject(e.getMessage());
+            return;
+        }
+        getAdapter().getLocations(new TSGetLocationsCallback() {
+            @Override public void onSuccess(List<LocationModel> records) {
+                try {
+                    LocationQuery.Page page = query.execute(records);
+                    WritableMap result = new WritableNativeMap();
+                    result.putArray("locations", BridgeConverter.locationsToWritableArray(page.records));
+                    result.putString("cursor", page.cursor);
+                    response.resolve(result);
+                } catch (IllegalArgumentException | JSONException e) {
+                    response.reject(e.getMessage());
+                }
+            }
+            @Override public void onFailure(Integer error) { response.reject(error.toString()); }
+        });
+    }
+
     @ReactMethod
     public void getCount(final Promise response) {
         response.resolve(getAdapter().getCount());
@@ -569,11 +758,7 @@ public class RNBackgroundGeolocationModule
         getAdapter().sync(new TSSyncCallback() {
             @Override public void onSuccess(List<LocationModel> records) {
                 try {
-                    JSONArray data = new JSONArray();
-                    for (LocationModel location : records) {
-                        data.put(location.json);
-                    }
-                    response.resolve(convertJsonToArray(data));
+                    response.resolve(BridgeConverter.locationsToWritableArray(records));
                 } catch (JSONException e) {
                     response.reject(e.getMessage());
                 }
@@ -648,6 +833,7 @@ public class RNBackgroundGeolocationModule
     public void setOdometer(double value, final Promise response) {
         getAdapter().setOdometer(value, new TSLocationCallback() {
             @Override public void onLocation(LocationEvent event) {
+                invalidateState();
                 response.resolve(mapToWritableMap(event.toMap()));
             }
             @Override public void onError(Integer errorCode) {
@@ -659,10 +845,13 @@ public class RNBackgroundGeolocationModule
     public void addGeofence(ReadableMap options, final Promise response) {
         try {
              getAdapter().addGeofence(buildGeofence(options), new TSCallback() {
-                 @Override public void onSuccess() { response.resolve(true); }
+                 @Override public void onSuccess() {
+                     invalidateGeofenceIndex();
+                     response.resolve(true);
+                 }
                  @Override public void onFailure(String error) { response.reject(error); }
              });
-        } catch (TSGeofence.Exception e) {
+        } catch (TSGeofence.Exception | IllegalArgumentException e) {
             response.reject(e.getMessage());
         }
     }
@@ -673,7 +862,7 @@ public class RNBackgroundGeolocationModule
         for (int n=0;n<data.size();n++) {
             try {
                 geofences.add(buildGeofence(data.getMap(n)));
-            } catch (TSGeofence.Exception e) {
+            } catch (TSGeofence.Exception | IllegalArgumentException e) {
                 response.reject(e.getMessage());
                 return;
             }
@@ -681,6 +870,7 @@ public class RNBackgroundGeolocationModule
 
         getAdapter().addGeofences(geofences, new TSCallback() {
             @Override public void onSuccess() {
+                invalidateGeofenceIndex();
                 response.resolve(true);
             }
             @Override public void onFailure(String error) {
@@ -689,6 +879,114 @@ public class RNBackgroundGeolocationModule
         });
     }
 
+    /**
+     * Add one slice of a chunked geofence ingestion (see JS #addGeofencesChunked).  Each geofence is built independently:
+     * an invalid record is rejected alone while the rest of the slice is added with a single #addGeofences.
+     * Resolves one result per geofence, in order:  {identifier, success: boolean, error?: String}
+     */
+    @ReactMethod
+    public void addGeofencesChunk(ReadableArray data, final Promise response) {
+        final int size = data.size();
+        final String[] identifiers = new String[size];
+        final String[] errors = new String[size];
+        List<TSGeofence> geofences = new ArrayList<>(size);
+        for (int n = 0; n < size; n++) {
+            ReadableMap config = data.getMap(n);
+            if (config == null) {
+                errors[n] = "Invalid geofence data";
+                continue;
+            }
+            if (config.hasKey("identifier") && !config.isNull("identifier")) {
+                identifiers[n] = config.getString("identifier");
+            }
+            try {
+                geofences.add(buildGeofence(config));
+            } catch (TSGeofence.Exception | RuntimeException e) {
+                // RuntimeException:  a field of the wrong type (eg: latitude: "abc").
+                errors[n] = e.getMessage();
+            }
+        }
+        if (geofences.isEmpty()) {
+            response.resolve(buildGeofenceResults(identifiers, errors, null));
+            return;
+        }
+        getAdapter().addGeofences(geofences, new TSCallback() {
+            @Override public void onSuccess() {
+                invalidateGeofenceIndex();
+                response.resolve(buildGeofenceResults(identifiers, errors, null));
+            }
+            @Override public void onFailure(String error) {
+                invalidateGeofenceIndex();
+                // The whole slice failed to persist:  every geofence which built fails with it.
+                response.resolve(buildGeofenceResults(identifiers, errors, error));
+            }
+        });
+    }
+
+    /**
+     * Stream geofences from a local GeoJSON or CSV file into the SDK (see GeofenceImporter), in batches.
+     * @param path file path (or file:// URI)
+     * @param format "geojson" | "csv", or null to infer it from the file extension.
+     * Resolves {total, accepted, rejected, errors: [{index, identifier, error}]}.  Rejects if the file can't be read
+     * or parsed, though batches added before the failure remain.
+     */
+    @ReactMethod
+    public void importGeofences(String path, String format, final Promise response) {
+        final File file = new File(path.startsWith("file://") ? path.substring("file://".length()) : path);
+        final String fileFormat = (format != null) ? format : GeofenceImporter.formatOf(path);
+        sImportExecutor.execute(() -> {
+            GeofenceImporter importer = new GeofenceImporter(this::addGeofencesAndWait);
+            try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+                response.resolve(jsonToMap(importer.run(reader, fileFormat)));
+            } catch (Exception e) {
+                // Unreadable file, unknown format, or a file not in the format (eg: IllegalStateException of JsonReader).
+                response.reject("importGeofences failed: " + e.getMessage());
+            } finally {
+                invalidateGeofenceIndex();
+            }
+        });
+    }
+
+    // For GeofenceImporter:  add a batch, blocking the import thread until the SDK is done.
+    private String addGeofencesAndWait(List<TSGeofence> geofences) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> error = new AtomicReference<>();
+        getAdapter().addGeofences(new ArrayList<>(geofences), new TSCallback() {
+            @Override public void onSuccess() { latch.countDown(); }
+            @Override public void onFailure(String message) {
+                error.set(message);
+                latch.countDown();
+            }
+        });
+        try {
+            if (!latch.await(IMPORT_BATCH_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return "Timed out adding geofences";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        }
+        return error.get();
+    }
+
+    private static WritableArray buildGeofenceResults(String[] identifiers, String[] errors, String failure) {
+        WritableArray results = new WritableNativeArray();
+        for (int n = 0; n < identifiers.length; n++) {
+            String error = (errors[n] != null) ? errors[n] : failure;
+            WritableMap result = new WritableNativeMap();
+            result.putString("identifier", identifiers[n]);
+            result.putBoolean("success", error == null);
+            if (error != null) {
+                result.putString("error", error);
+            }
+            results.pushMap(result);
+        }
+        return results;
+    }
+
+    /**
+     * @throws IllegalArgumentException for malformed vertices (see PolygonVertices#read).
+     */
     private TSGeofence buildGeofence(ReadableMap config) throws TSGeofence.Exception {
         TSGeofence.Builder builder = new TSGeofence.Builder();
         if (config.hasKey("identifier"))       { builder.setIdentifier(config.getString("identifier")); }
@@ -701,19 +999,10 @@ public class RNBackgroundGeolocationModule
         if (config.hasKey("loiteringDelay"))   { builder.setLoiteringDelay(config.getInt("loiteringDelay")); }
         if (config.hasKey("extras"))           { builder.setExtras(mapToJson(config.getMap("extras"))); }
         if (config.hasKey("vertices"))         {
-            // Polygon Geofence
-            List<List<Double>> vertices = new ArrayList<>();
-            ReadableArray rows = config.getArray("vertices");
-            if (rows != null) {
-                for (int i = 0; i < rows.size(); i++) {
-                    // Each row is a vertex of the Polygon.
-                    ReadableArray record = rows.getArray(i);
-                    List<Double> vertex = new ArrayList<>();
-                    vertex.add(record.getDouble(0)); // latitude
-                    vertex.add(record.getDouble(1)); // longitude
-                    vertices.add(vertex);
-                }
-                builder.setVertices(vertices);
+            // Polygon Geofence:  flat [lat, lng, ...], encoded-polyline or [[lat, lng], ...] (see PolygonVertices).
+            PolygonVertices vertices = PolygonVertices.read(config, "vertices");
+            if (vertices.size() > 0) {
+                builder.setVertices(vertices.asList());
             }
         }
         return builder.build();
@@ -723,6 +1012,7 @@ public class RNBackgroundGeolocationModule
     public void removeGeofence(String identifier, final Promise response) {
         getAdapter().removeGeofence(identifier, new TSCallback() {
             @Override public void onSuccess() {
+                invalidateGeofenceIndex();
                 response.resolve(true);
             }
             @Override public void onFailure(String error) {
@@ -731,13 +1021,58 @@ public class RNBackgroundGeolocationModule
         });
     }
 
+    /**
+     * Remove geofences in a single batch:
+     *   {}:  all geofences.
+     *   {identifiers?, prefix?, extras?}:  geofences listed in identifiers, whose identifier starts with prefix, or
+     *   whose extras contain every key-value of extras.
+     */
     @ReactMethod
-    public void removeGeofences(final Promise response) {
-        // TODO allow JS api to delete a list-of-geofences.
-        // TODO accept WritableArray geofences from Client js API, allowing to remove a set of geofences
-        List<String> identifiers = new ArrayList<>();
+    public void removeGeofences(ReadableMap query, final Promise response) {
+        final List<String> identifiers = new ArrayList<>();
+        if (query.hasKey("identifiers")) {
+            ReadableArray array = query.getArray("identifiers");
+            for (int i = 0; array != null && i < array.size(); i++) {
+                identifiers.add(array.getString(i));
+            }
+        }
+        final String prefix = query.hasKey("prefix") ? query.getString("prefix") : null;
+        final JSONObject extras = query.hasKey("extras") ? mapToJson(query.getMap("extras")) : null;
+        if (prefix == null && extras == null) {
+            // An empty identifiers list removes all geofences:  only when none were specified.
+            if (query.hasKey("identifiers") && identifiers.isEmpty()) {
+                response.resolve(true);
+                return;
+            }
+            removeGeofences(identifiers, response);
+            return;
+        }
+        getAdapter().getGeofences(new TSGetGeofencesCallback() {
+            @Override public void onSuccess(List<TSGeofence> geofences) {
+                Set<String> listed = new HashSet<>(identifiers);
+                for (TSGeofence geofence : geofences) {
+                    String identifier = geofence.getIdentifier();
+                    if (listed.contains(identifier)) {
+                        continue;
+                    }
+                    if ((prefix != null && identifier.startsWith(prefix)) || (extras != null && hasExtras(geofence, extras))) {
+                        identifiers.add(identifier);
+                    }
+                }
+                if (identifiers.isEmpty()) {
+                    response.resolve(true);
+                } else {
+                    removeGeofences(identifiers, response);
+                }
+            }
+            @Override public void onFailure(String error) { response.reject(error); }
+        });
+    }
+
+    private void removeGeofences(List<String> identifiers, final Promise response) {
         getAdapter().removeGeofences(identifiers, new TSCallback() {
             @Override public void onSuccess() {
+                invalidateGeofenceIndex();
                 response.resolve(true);
             }
             @Override public void onFailure(String error) {
@@ -746,6 +1081,39 @@ public class RNBackgroundGeolocationModule
         });
     }
 
+    private static boolean hasExtras(TSGeofence geofence, JSONObject query) {
+        JSONObject extras = geofence.getExtras();
+        return extras != null && extrasMatch(extras, query);
+    }
+
+    /**
+     * True if extras contains every top-level key of query, of an equal value.  Numbers are compared by value (the bridge
+     * delivers 1 as 1.0);  nested objects / arrays by their JSON.
+     */
+    private static boolean extrasMatch(JSONObject extras, JSONObject query) {
+        Iterator<String> keys = query.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!extras.has(key)) {
+                return false;
+            }
+            Object expected = query.opt(key);
+            Object actual = extras.opt(key);
+            if (expected instanceof Number && actual instanceof Number) {
+                if (Double.compare(((Number) expected).doubleValue(), ((Number) actual).doubleValue()) != 0) {
+                    return false;
+                }
+            } else if (expected instanceof JSONObject || expected instanceof JSONArray) {
+                if (actual == null || !expected.toString().equals(actual.toString())) {
+                    return false;
+                }
+            } else if (expected == null || !expected.equals(actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @ReactMethod
     public void getGeofences(final Promise response) {
         getAdapter().getGeofences(new TSGetGeofencesCallback() {
@@ -760,6 +1128,129 @@ public class RNBackgroundGeolocationModule
         });
     }
 
+    /**
+     * Query the stored geofences by region, marshalling only the matches:
+     *   {bbox: [west, south, east, north], limit?}:  geofences intersecting the box.
+     *   {latitude, longitude, radius, limit?}:  geofences within radius metres of the point, nearest first.
+     */
+    @ReactMethod
+    public void queryGeofences(ReadableMap params, final Promise response) {
+        final int limit = params.hasKey("limit") ? params.getInt("limit") : 0;
+        final double[] bbox;
+        final double latitude, longitude, radius;
+        if (params.hasKey("bbox")) {
+            ReadableArray array = params.getArray("bbox");
+            if (array == null || array.size() != 4) {
+                response.reject("queryGeofences bbox must be [west, south, east, north]");
+                return;
+            }
+            bbox = new double[] {array.getDouble(0), array.getDouble(1), array.getDouble(2), array.getDouble(3)};
+            latitude = longitude = radius = 0;
+        } else if (params.hasKey("latitude") && params.hasKey("longitude") && params.hasKey("radius")) {
+            bbox = null;
+            latitude = params.getDouble("latitude");
+            longitude = params.getDouble("longitude");
+            radius = params.getDouble("radius");
+        } else {
+            response.reject("queryGeofences requires {bbox} or {latitude, longitude, radius}");
+            return;
+        }
+        getGeofenceIndex(new GeofenceIndexCallback() {
+            @Override public void onSuccess(GeofenceIndex<TSGeofence> index) {
+                List<GeofenceIndex.Entry<TSGeofence>> entries = (bbox != null)
+                        ? index.queryBbox(bbox[1], bbox[0], bbox[3], bbox[2], limit)
+                        : index.queryRadius(latitude, longitude, radius, limit);
+                WritableArray rs = new WritableNativeArray();
+                for (GeofenceIndex.Entry<TSGeofence> entry : entries) {
+                    rs.pushMap(mapToWritableMap(entry.item.toMap()));
+                }
+                response.resolve(rs);
+            }
+            @Override public void onFailure(String error) { response.reject(error); }
+        });
+    }
+
+    /**
+     * Test a batch of points against the stored geofences.
+     * @param points flat [lat, lng, lat, lng, ...]
+     * Resolves, for each point, the identifiers of the geofences containing it.
+     */
+    @ReactMethod
+    public void hitTestGeofences(ReadableArray points, final Promise response) {
+        if (points.size() % 2 != 0) {
+            response.reject("hitTestGeofences points must be [lat, lng, lat, lng, ...]");
+            return;
+        }
+        final double[] coords = new double[points.size()];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = points.getDouble(i);
+        }
+        getGeofenceIndex(new GeofenceIndexCallback() {
+            @Override public void onSuccess(GeofenceIndex<TSGeofence> index) {
+                WritableArray rs = new WritableNativeArray();
+                for (int i = 0; i < coords.length; i += 2) {
+                    WritableArray identifiers = new WritableNativeArray();
+                    for (GeofenceIndex.Entry<TSGeofence> entry : index.hitTest(coords[i], coords[i + 1])) {
+                        identifiers.pushString(entry.item.getIdentifier());
+                    }
+                    rs.pushArray(identifiers);
+                }
+                response.resolve(rs);
+            }
+            @Override public void onFailure(String error) { response.reject(error); }
+        });
+    }
+
+    private interface GeofenceIndexCallback {
+        void onSuccess(GeofenceIndex<TSGeofence> index);
+        void onFailure(String error);
+    }
+
+    private void getGeofenceIndex(final GeofenceIndexCallback callback) {
+        GeofenceIndex<TSGeofence> index = mGeofenceIndex;
+        if (index != null) {
+            callback.onSuccess(index);
+            return;
+        }
+        final int version = mGeofenceIndexVersion.get();
+        getAdapter().getGeofences(new TSGetGeofencesCallback() {
+            @Override public void onSuccess(List<TSGeofence> geofences) {
+                GeofenceIndex.Builder<TSGeofence> builder = new GeofenceIndex.Builder<>();
+                for (TSGeofence geofence : geofences) {
+                    builder.add(geofence, geofence.getLatitude(), geofence.getLongitude(), geofence.getRadius(), flattenVertices(geofence.getVertices()));
+                }
+                GeofenceIndex<TSGeofence> index = builder.build();
+                // Don't cache an index built from geofences since changed.
+                synchronized (RNBackgroundGeolocationModule.this) {
+                    if (mGeofenceIndexVersion.get() == version) {
+                        mGeofenceIndex = index;
+                    }
+                }
+                callback.onSuccess(index);
+            }
+            @Override public void onFailure(String error) { callback.onFailure(error); }
+        });
+    }
+
+    private synchronized void invalidateGeofenceIndex() {
+        mGeofenceIndexVersion.incrementAndGet();
+        mGeofenceIndex = null;
+    }
+
+    // [[lat, lng], ...] -> [lat, lng, lat, lng, ...], or null for a circular geofence.
+    private static double[] flattenVertices(List<List<Double>> vertices) {
+        if (vertices == null || vertices.isEmpty()) {
+            return null;
+        }
+        double[] flat = new double[vertices.size() * 2];
+        for (int i = 0; i < vertices.size(); i++) {
+            List<Double> vertex = vertices.get(i);
+            flat[i * 2] = vertex.get(0);
+            flat[i * 2 + 1] = vertex.get(1);
+        }
+        return flat;
+    }
+
     @ReactMethod
     public void getGeofence(String identifier, final Promise response) {
         getAdapter().getGeofence(identifier, new TSGetGeofenceCallback() {
@@ -819,6 +1310,36 @@ public class RNBackgroundGeolocationModule
         response.resolve(true);
     }
 
+    /**
+     * Persist options for HeadlessTask (see HeadlessTask#configure)
+     */
+    @ReactMethod
+    public void configureHeadlessTask(ReadableMap options, Promise response) {
+        HeadlessTask.configure(getReactApplicationContext(), options);
+        response.resolve(true);
+    }
+
+    /**
+     * Headless-task scheduler counts:  {running, pending, dropped}
+     */
+    @ReactMethod
+    public void getHeadlessTaskStats(Promise response) {
+        HeadlessTaskManager manager = HeadlessTaskManager.getInstance();
+        WritableMap stats = new WritableNativeMap();
+        stats.putInt("running", manager.getRunningTaskCount());
+        stats.putInt("pending", manager.getPendingTaskCount());
+        stats.putInt("dropped", manager.getDroppedTaskCount());
+        response.resolve(stats);
+    }
+
+    /**
+     * Headless pipeline latency histograms and queue gauges (see HeadlessTaskMetrics)
+     */
+    @ReactMethod
+    public void getHeadlessMetrics(Promise response) {
+        response.resolve(mapToWritableMap(HeadlessTaskManager.getInstance().getMetrics()));
+    }
+
     @ReactMethod
     public void getTransistorToken(String orgname, String username, String url, final Promise response) {
 
@@ -1014,11 +1535,44 @@ public class RNBackgroundGeolocationModule
     @ReactMethod
     public void addListener(String event) {
         // Keep:  Required for RN built-in NativeEventEmitter calls.
+        if (!mEvents.contains(event)) {
+            return;
+        }
+        synchronized (mListeners) {
+            Integer count = mListeners.get(event);
+            mListeners.put(event, (count == null) ? 1 : count + 1);
+        }
     }
 
     @ReactMethod
     public void removeListeners(double count) {
         // Keep:  Required for RN built-in NativeEventEmitter calls.
+        // RN provides only a count here, not the event-name, so per-event counts are decremented by #removeListener instead.
+    }
+
+    /**
+     * Called by our JS Subscription.remove() to decrement the listener-count of a single event.
+     * @param event
+     */
+    @ReactMethod
+    public void removeListener(String event) {
+        synchronized (mListeners) {
+            Integer count = mListeners.get(event);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                mListeners.put(event, count - 1);
+            } else {
+                mListeners.remove(event);
+            }
+        }
+    }
+
+    private boolean hasListeners(String event) {
+        synchronized (mListeners) {
+            return mListeners.containsKey(event);
+        }
     }
 
     private void removeAllListeners() {
@@ -1028,6 +1582,9 @@ public class RNBackgroundGeolocationModule
     }
 
     private void onLocationError(Integer code) {
+        if (!hasListeners(EventName.LOCATION)) {
+            return;
+        }
         WritableMap params = new WritableNativeMap();
         params.putInt("error", code);
         sendEvent(EventName.LOCATION, params);
@@ -1047,6 +1604,12 @@ public class RNBackgroundGeolocationModule
                 .emit(eventName, params);
     }
 
+    private void sendEvent(String eventName, WritableArray params) {
+        getReactApplicationContext()
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+    }
+
     private void sendEvent(String eventName, String result) {
         getReactApplicationContext()
                 .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
@@ -1059,195 +1622,24 @@ public class RNBackgroundGeolocationModule
                 .emit(eventName, result);
     }
 
-    @SuppressWarnings("unchecked")
     public static WritableMap mapToWritableMap(Map<String, ?> src) {
-        WritableMap map = new WritableNativeMap();
-        if (src == null) {
-            return map;
-        }
-
-        for (Map.Entry<String, ?> entry : src.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-
-            if (value == null) {
-                map.putNull(key);
-            } else if (value instanceof Boolean) {
-                map.putBoolean(key, (Boolean) value);
-            } else if (value instanceof Integer) {
-                map.putInt(key, (Integer) value);
-            } else if (value instanceof Long) {
-                map.putDouble(key, ((Long) value).doubleValue());
-            } else if (value instanceof Float) {
-                map.putDouble(key, ((Float) value).doubleValue());
-            } else if (value instanceof Double) {
-                map.putDouble(key, (Double) value);
-            } else if (value instanceof String) {
-                map.putString(key, (String) value);
-            } else if (value instanceof Map) {
-                map.putMap(key, mapToWritableMap((Map<String, ?>) value));
-            } else if (value instanceof Iterable) {
-                map.putArray(key, iterableToWritableArray((Iterable<Object>) value));
-            } else if (value.getClass().isArray()) {
-                List<Object> list = Arrays.asList((Object[]) value);
-                map.putArray(key, iterableToWritableArray(list));
-            } else {
-                map.putString(key, value.toString());
-            }
-        }
-
-        return map;
-    }
-
-    private static WritableArray iterableToWritableArray(Iterable<Object> src) {
-        WritableArray array = new WritableNativeArray();
-        if (src == null) return array;
-
-        for (Object value : src) {
-            if (value == null) {
-                array.pushNull();
-            } else if (value instanceof Boolean) {
-                array.pushBoolean((Boolean) value);
-            } else if (value instanceof Integer) {
-                array.pushInt((Integer) value);
-            } else if (value instanceof Long) {
-                array.pushDouble(((Long) value).doubleValue());
-            } else if (value instanceof Float) {
-                array.pushDouble(((Float) value).doubleValue());
-            } else if (value instanceof Double) {
-                array.pushDouble((Double) value);
-            } else if (value instanceof String) {
-                array.pushString((String) value);
-            } else if (value instanceof Map) {
-                array.pushMap(mapToWritableMap((Map<String, Object>) value));
-            } else if (value instanceof Iterable) {
-                array.pushArray(iterableToWritableArray((Iterable<Object>) value));
-            } else if (value.getClass().isArray()) {
-                List<Object> list = Arrays.asList((Object[]) value);
-                array.pushArray(iterableToWritableArray(list));
-            } else {
-                array.pushString(value.toString());
-            }
-        }
-
-        return array;
+        return BridgeConverter.mapToWritableMap(src);
     }
 
     public static WritableMap jsonToMap(JSONObject jsonObject) throws JSONException {
-        WritableMap map = new WritableNativeMap();
-        if (jsonObject == null) {
-            return map;
-        }
-
-        Iterator<String> iterator = jsonObject.keys();
-        while (iterator.hasNext()) {
-            String key = iterator.next();
-            Object value = jsonObject.get(key);
-            if (value instanceof JSONObject) {
-                map.putMap(key, jsonToMap((JSONObject) value));
-            } else if (value instanceof  JSONArray) {
-                map.putArray(key, convertJsonToArray((JSONArray) value));
-            } else if (value instanceof  Boolean) {
-                map.putBoolean(key, (Boolean) value);
-            } else if (value instanceof  Integer) {
-                map.putInt(key, (Integer) value);
-            } else if (value instanceof Long) {
-                map.putDouble(key, ((Long) value).doubleValue());
-            } else if (value instanceof  Double) {
-                map.putDouble(key, (Double) value);
-            } else if (value instanceof Float) {
-                map.putDouble(key, ((Float) value).doubleValue());
-            } else if (value instanceof String)  {
-                map.putString(key, (String) value);
-            } else {
-                map.putString(key, value.toString());
-            }
-        }
-        return map;
+        return BridgeConverter.jsonToMap(jsonObject);
     }
 
     public static WritableArray convertJsonToArray(JSONArray jsonArray) throws JSONException {
-        WritableArray array = new WritableNativeArray();
-
-        for (int i = 0; i < jsonArray.length(); i++) {
-            Object value = jsonArray.get(i);
-            if (value instanceof JSONObject) {
-                array.pushMap(jsonToMap((JSONObject) value));
-            } else if (value instanceof  JSONArray) {
-                array.pushArray(convertJsonToArray((JSONArray) value));
-            } else if (value instanceof  Boolean) {
-                array.pushBoolean((Boolean) value);
-            } else if (value instanceof  Integer) {
-                array.pushInt((Integer) value);
-            } else if (value instanceof  Double) {
-                array.pushDouble((Double) value);
-            } else if (value instanceof String)  {
-                array.pushString((String) value);
-            } else {
-                array.pushString(value.toString());
-            }
-        }
-        return array;
+        return BridgeConverter.convertJsonToArray(jsonArray);
     }
 
     public static JSONObject mapToJson(ReadableMap map) {
-        ReadableMapKeySetIterator iterator = map.keySetIterator();
-        JSONObject json = new JSONObject();
-
-        try {
-            while (iterator.hasNextKey()) {
-                String key = iterator.nextKey();
-                switch (map.getType(key)) {
-                    case String:
-                        json.put(key, map.getString(key));
-                        break;
-                    case Boolean:
-                        json.put(key, map.getBoolean(key));
-                        break;
-                    case Number:
-                        json.put(key, map.getDouble(key));
-                        break;
-                    case Map:
-                        json.put(key, mapToJson(map.getMap(key)));
-                        break;
-                    case Array:
-                        json.put(key, arrayToJson(map.getArray(key)));
-                        break;
-
-                }
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-        return json;
+        return BridgeConverter.mapToJson(map);
     }
 
     public static JSONArray arrayToJson(ReadableArray readableArray) throws JSONException {
-        JSONArray jsonArray = new JSONArray();
-        for(int i=0; i < readableArray.size(); i++) {
-            ReadableType valueType = readableArray.getType(i);
-            switch (valueType){
-                case Null:
-                    jsonArray.put(JSONObject.NULL);
-                    break;
-                case Boolean:
-                    jsonArray.put(readableArray.getBoolean(i));
-                    break;
-                case Number:
-                    jsonArray.put(readableArray.getDouble(i));
-                    break;
-                case String:
-                    jsonArray.put(readableArray.getString(i));
-                    break;
-                case Map:
-                    jsonArray.put(mapToJson(readableArray.getMap(i)));
-                    break;
-                case Array:
-                    jsonArray.put(arrayToJson(readableArray.getArray(i)));
-                    break;
-            }
-        }
-        return jsonArray;
+        return BridgeConverter.arrayToJson(readableArray);
     }
 
     private void initializeLocationManager() {
@@ -1274,8 +1666,28 @@ public class RNBackgroundGeolocationModule
         return myConfig;
     }
 
-    private WritableMap getState() {
-        return mapToWritableMap(TSConfig.getInstance(getReactApplicationContext()).toMap(false));
+    /**
+     * Config state as delivered to Javascript.  Once #ready, the converted state is cached until #invalidateState, which is
+     * called wherever config is committed or the enabled / tracking state (isMoving, trackingMode, schedulerEnabled,
+     * authorization) changes.  The odometer, advancing with each location, is not cached:  it's read into each copy.
+     * A resolved WritableMap is consumed by the bridge, so each caller receives a copy.
+     */
+    private synchronized WritableMap getState() {
+        WritableMap state = mState;
+        if (state == null) {
+            state = mapToWritableMap(TSConfig.getInstance(getReactApplicationContext()).toMap(false));
+            if (!mReady) {
+                return state;
+            }
+            mState = state;
+        }
+        state = state.copy();
+        state.putDouble("odometer", getAdapter().getOdometer());
+        return state;
+    }
+
+    private synchronized void invalidateState() {
+        mState = null;
     }
 
     private BackgroundGeolocation getAdapter() {
@@ -41,6 +41,7 @@ static NSString *const EVENT_CONNECTIVITYCHANGE = @"connectivitychange";
 static NSString *const EVENT_ENABLEDCHANGE      = @"enabledchange";
 static NSString *const EVENT_NOTIFICATIONACTION = @"notificationaction";
 static NSString *const EVENT_AUTHORIZATION      = @"authorization";
+static NSString *const EVENT_LOCATIONBATCH      = @"locationbatch";
 
 @implementation RNBackgroundGeolocation {
     BOOL ready;
@@ -146,7 +147,8 @@ RCT_EXPORT_MODULE();
         EVENT_CONNECTIVITYCHANGE,
         EVENT_ENABLEDCHANGE,
         EVENT_NOTIFICATIONACTION,
-        EVENT_AUTHORIZATION
+        EVENT_AUTHORIZATION,
+        EVENT_LOCATIONBATCH
     ];
 }
 
@@ -336,6 +338,22 @@ RCT_EXPORT_METHOD(finishHeadlessTask:(double)taskId
     resolve(@(YES));
 }
 
+RCT_EXPORT_METHOD(configureHeadlessTask:(NSDictionary*)options resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    // iOS doesn't use RN Headless JS.
+    resolve(@(YES));
+}
+
+RCT_EXPORT_METHOD(getHeadlessTaskStats:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"get_headless_task_stats_error", @"No iOS Implementation", nil);
+}
+
+RCT_EXPORT_METHOD(getHeadlessMetrics:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"get_headless_metrics_error", @"No iOS Implementation", nil);
+}
+
 RCT_EXPORT_METHOD(getCurrentPosition:(NSDictionary*)options resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
 {
     TSCurrentPositionRequest *request = [TSCurrentPositionRequest requestWithSuccess:^(TSLocationEvent *event) {
@@ -389,6 +407,11 @@ RCT_EXPORT_METHOD(stopWatchPosition:(NSInteger)watchId resolve:(RCTPromiseResolv
     resolve(@(YES));
 }
 
+RCT_EXPORT_METHOD(setLocationBatch:(NSDictionary*)options resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"set_location_batch_error", @"No iOS Implementation", nil);
+}
+
 RCT_EXPORT_METHOD(getLocations:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
 {
     [locationManager getLocations:^(NSArray* records) {
@@ -398,6 +421,11 @@ RCT_EXPORT_METHOD(getLocations:(RCTPromiseResolveBlock)resolve reject:(RCTPromis
     }];
 }
 
+RCT_EXPORT_METHOD(getLocationsPage:(NSDictionary*)query resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"get_locations_page_error", @"No iOS Implementation", nil);
+}
+
 RCT_EXPORT_METHOD(sync:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
 {
     [locationManager sync:^(NSArray* records) {
@@ -418,6 +446,16 @@ RCT_EXPORT_METHOD(getGeofences:(RCTPromiseResolveBlock)resolve reject:(RCTPromis
     }];
 }
 
+RCT_EXPORT_METHOD(queryGeofences:(NSDictionary*)query resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"query_geofences_error", @"No iOS Implementation", nil);
+}
+
+RCT_EXPORT_METHOD(hitTestGeofences:(NSArray*)points resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    reject(@"hit_test_geofences_error", @"No iOS Implementation", nil);
+}
+
 RCT_EXPORT_METHOD(getGeofence:(NSString*)identifier resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
 {
     [locationManager getGeofence:identifier success:^(TSGeofence* geofence) {
@@ -469,6 +507,45 @@ RCT_EXPORT_METHOD(addGeofences:(NSArray*) data resolve:(RCTPromiseResolveBlock)r
     }];
 }
 
+RCT_EXPORT_METHOD(addGeofencesChunk:(NSArray*) data resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    NSMutableArray *geofences = [NSMutableArray new];
+    NSMutableArray *errors = [NSMutableArray new];
+    for (NSDictionary *params in data) {
+        TSGeofence *geofence = [params isKindOfClass:[NSDictionary class]] ? [self buildGeofence:params] : nil;
+        if (geofence != nil) {
+            [geofences addObject:geofence];
+            [errors addObject:[NSNull null]];
+        } else {
+            [errors addObject:@"Invalid geofence data"];
+        }
+    }
+    NSArray* (^buildResults)(NSString*) = ^NSArray*(NSString *failure) {
+        NSMutableArray *results = [NSMutableArray new];
+        for (NSUInteger n = 0; n < data.count; n++) {
+            id identifier = [data[n] isKindOfClass:[NSDictionary class]] ? data[n][@"identifier"] : nil;
+            id error = (errors[n] != [NSNull null]) ? errors[n] : failure;
+            NSMutableDictionary *result = [NSMutableDictionary new];
+            result[@"identifier"] = (identifier) ? identifier : [NSNull null];
+            result[@"success"] = @(error == nil);
+            if (error != nil) {
+                result[@"error"] = error;
+            }
+            [results addObject:result];
+        }
+        return results;
+    };
+    if (geofences.count == 0) {
+        resolve(buildResults(nil));
+        return;
+    }
+    [locationManager addGeofences:geofences success:^{
+        resolve(buildResults(nil));
+    } failure:^(NSString *error) {
+        resolve(buildResults(error));
+    }];
+}
+
 -(TSGeofence*) buildGeofence:(NSDictionary*)params {
 
     if (!params[@"identifier"] || (!params[@"vertices"] && (!params[@"radius"] || !params[@"latitude"] || !params[@"longitude"]))) {
@@ -496,11 +573,51 @@ RCT_EXPORT_METHOD(removeGeofence:(NSString*)identifier resolve:(RCTPromiseResolv
     }];
 }
 
-RCT_EXPORT_METHOD(removeGeofences:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+RCT_EXPORT_METHOD(importGeofences:(NSString*)path format:(NSString*)format resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
 {
-    NSArray *geofences = @[];
-    [locationManager removeGeofences:geofences success:^{
-        resolve(@(YES));
+    reject(@"import_geofences_error", @"No iOS Implementation", nil);
+}
+
+RCT_EXPORT_METHOD(removeGeofences:(NSDictionary*)query resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject)
+{
+    NSMutableArray *identifiers = [NSMutableArray arrayWithArray:query[@"identifiers"] ?: @[]];
+    NSString *prefix = query[@"prefix"];
+    NSDictionary *extras = query[@"extras"];
+
+    void (^remove)(NSArray*) = ^(NSArray *geofences) {
+        [self->locationManager removeGeofences:geofences success:^{
+            resolve(@(YES));
+        } failure:^(NSString* error) {
+            reject(@"remove_geofences_error", error, nil);
+        }];
+    };
+    if (!prefix && !extras) {
+        // An empty identifiers list removes all geofences:  only when none were specified.
+        if (query[@"identifiers"] && identifiers.count == 0) {
+            resolve(@(YES));
+            return;
+        }
+        remove(identifiers);
+        return;
+    }
+    [locationManager getGeofences:^(NSArray* geofences) {
+        NSSet *listed = [NSSet setWithArray:identifiers];
+        for (TSGeofence *geofence in geofences) {
+            if ([listed containsObject:geofence.identifier]) continue;
+            BOOL matches = (prefix && [geofence.identifier hasPrefix:prefix]);
+            if (!matches && extras && geofence.extras) {
+                matches = YES;
+                for (NSString *key in extras) {
+                    if (![extras[key] isEqual:geofence.extras[key]]) { matches = NO; break; }
+                }
+            }
+            if (matches) [identifiers addObject:geofence.identifier];
+        }
+        if (identifiers.count == 0) {
+            resolve(@(YES));
+        } else {
+            remove(identifiers);
+        }
     } failure:^(NSString* error) {
         reject(@"remove_geofences_error", error, nil);
     }];
@@ -707,6 +824,11 @@ RCT_EXPORT_METHOD(playSound:(NSString*)soundId resolve:(RCTPromiseResolveBlock)r
     resolve(@(YES));
 }
 
+RCT_EXPORT_METHOD(removeListener:(NSString*)eventName)
+{
+    // Nothing to do:  RCTEventEmitter maintains its own listener-count via #addListener / #removeListeners.
+}
+
 -(void) sendEvent:(NSString*)event body:(id)body
 {
     [self sendEventWithName:event body:body];
@@ -21,7 +21,7 @@ const RNBackgroundGeolocation = {
   addGeofence: (_cfg, ok) => ok?.(),
   addGeofences: (_list, ok) => ok?.(),
   removeGeofence: (_id, ok) => ok?.(),
-  removeGeofences: (ok) => ok?.(),
+  removeGeofences: (_query, ok) => ok?.(),
   getGeofences: (ok) => ok?.([]),
   getGeofence: (_id, ok) => ok?.(null),
   geofenceExists: (_id, cb) => cb(false),
@@ -42,6 +42,9 @@ const RNBackgroundGeolocation = {
   log: () => {},
   getDeviceInfo: (ok) => ok?.({ model: 'mock' }),
   playSound: () => {},
+  addListener: () => {},
+  removeListeners: () => {},
+  removeListener: () => {},
 };
 
 module.exports = {
@@ -123,6 +123,14 @@ const removeEventSubscription = (subscription) => {
   }
 }
 
+// RN's NativeEventEmitter only signals a *count* to native #removeListeners, so tell native
+// which event lost a listener.  Android uses this to skip building events nobody listens to.
+const removeNativeListener = (event) => {
+  if (typeof(RNBackgroundGeolocation.removeListener) === 'function') {
+    RNBackgroundGeolocation.removeListener(event);
+  }
+}
+
 // Validate provided config for #ready, #setConfig
 const validateConfig = (config) => {
   // Detect obsolete notification* fields and re-map to Notification instance.
@@ -152,6 +160,9 @@ const validateConfig = (config) => {
   return config;
 };
 
+// Geofences per #addGeofencesChunked slice.
+const DEFAULT_GEOFENCE_CHUNK_SIZE = 500;
+
 // Cached copy of DeviceInfo.
 let deviceInfo = null;
 /**
@@ -204,6 +215,8 @@ export default class NativeModule {
       }
     }
     const subscription = EventEmitter.addListener(event, handler);
+    // .remove() may be called more than once (eg: by the app and by #removeListeners):  only the first decrements the native listener-count.
+    let removed = false;
 
     if (typeof(subscription.remove) === 'function') {
       // React Native 0.65+ altered EventEmitter
@@ -213,13 +226,19 @@ export default class NativeModule {
       // to not use removeListener.
       const originalRemove = subscription.remove;
       subscription.remove = () => {
+        if (removed) return;
+        removed = true;
         originalRemove.call(subscription);
+        removeNativeListener(event);
         removeEventSubscription(subscription);
       }
     } else {
       // Old RN API?  Create a .remove() method.
       subscription.remove = () => {
+        if (removed) return;
+        removed = true;
         EventEmitter.removeListener(event, handler);
+        removeNativeListener(event);
         removeEventSubscription(subscription);
       }
     }
@@ -229,7 +248,8 @@ export default class NativeModule {
 
   static removeListeners() {
     return new Promise((resolve, reject) => {
-      EVENT_SUBSCRIPTIONS.forEach((sub) => {
+      // Iterate a copy:  each .remove() splices itself out of EVENT_SUBSCRIPTIONS.
+      EVENT_SUBSCRIPTIONS.slice().forEach((sub) => {
         sub.subscription.remove();
       });
       EVENT_SUBSCRIPTIONS = [];
@@ -272,6 +292,19 @@ export default class NativeModule {
   static finishHeadlessTask(taskId) {
     return RNBackgroundGeolocation.finishHeadlessTask(taskId);     
   }
+
+  static configureHeadlessTask(options) {
+    options = options || {};
+    return RNBackgroundGeolocation.configureHeadlessTask(options);
+  }
+
+  static getHeadlessTaskStats() {
+    return RNBackgroundGeolocation.getHeadlessTaskStats();
+  }
+
+  static getHeadlessMetrics() {
+    return RNBackgroundGeolocation.getHeadlessMetrics();
+  }
   
   /**
   * Geolocation Methods
@@ -318,6 +351,11 @@ export default class NativeModule {
     return RNBackgroundGeolocation.stopWatchPosition(watchId);
   }
 
+  static setLocationBatch(options) {
+    options = options || {};
+    return RNBackgroundGeolocation.setLocationBatch(options);
+  }
+
   static getOdometer() {
     return RNBackgroundGeolocation.getOdometer();
   }
@@ -334,6 +372,11 @@ export default class NativeModule {
     return RNBackgroundGeolocation.getLocations();    
   }
 
+  static getLocationsPage(query) {
+    query = query || {};
+    return RNBackgroundGeolocation.getLocationsPage(query);
+  }
+
   static getCount() {
     return RNBackgroundGeolocation.getCount();
   }
@@ -370,8 +413,36 @@ export default class NativeModule {
     return RNBackgroundGeolocation.addGeofences(geofences);    
   }
 
-  static removeGeofences() {
-    return RNBackgroundGeolocation.removeGeofences();      
+  static async addGeofencesChunked(geofences, options) {
+    options = options || {};
+    const chunkSize = Math.max(1, options.chunkSize || DEFAULT_GEOFENCE_CHUNK_SIZE);
+    const onProgress = (typeof(options.onProgress) === 'function') ? options.onProgress : null;
+    const total = geofences.length;
+    const results = [];
+    let accepted = 0;
+    // One slice in flight at a time:  neither the bridge nor native ever holds more than chunkSize geofences.
+    for (let offset = 0; offset < total; offset += chunkSize) {
+      const chunk = await RNBackgroundGeolocation.addGeofencesChunk(geofences.slice(offset, offset + chunkSize));
+      chunk.forEach((result) => {
+        if (result.success) accepted++;
+        results.push(result);
+      });
+      if (onProgress) {
+        onProgress({processed: results.length, total, accepted, rejected: results.length - accepted});
+      }
+    }
+    return {total, accepted, rejected: results.length - accepted, results};
+  }
+
+  static importGeofences(path, format) {
+    return RNBackgroundGeolocation.importGeofences(path, format || null);
+  }
+
+  static removeGeofences(query) {
+    if (Array.isArray(query)) {
+      query = {identifiers: query};
+    }
+    return RNBackgroundGeolocation.removeGeofences(query || {});
   }
 
   static getGeofences() {
@@ -382,6 +453,26 @@ export default class NativeModule {
     return RNBackgroundGeolocation.getGeofence(identifier);
   }
 
+  static queryGeofences(query) {
+    query = query || {};
+    return RNBackgroundGeolocation.queryGeofences(query);
+  }
+
+  static async hitTestGeofences(latitude, longitude) {
+    const isBatch = Array.isArray(latitude);
+    const points = isBatch ? latitude : [[latitude, longitude]];
+    const flat = [];
+    points.forEach((point) => {
+      if (Array.isArray(point)) {
+        flat.push(point[0], point[1]);
+      } else {
+        flat.push(point.latitude, point.longitude);
+      }
+    });
+    const results = await RNBackgroundGeolocation.hitTestGeofences(flat);
+    return isBatch ? results : results[0];
+  }
+
   static geofenceExists(identifier) {
     return RNBackgroundGeolocation.geofenceExists(identifier);
   }
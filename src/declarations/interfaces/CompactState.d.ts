@@ -0,0 +1,23 @@
+/**
+* [Android only] The `params` of `schedule`, `boot` and `terminate` events (headless, and [[BackgroundGeolocation.onSchedule]])
+* when [[BackgroundGeolocation.configureHeadlessTask]] is provided `compactEvents: true`, in place of the entire [[State]].
+*
+* ```typescript
+* BackgroundGeolocation.onSchedule((state) => {
+*   // With compactEvents, only these fields:  use getState() for the rest.
+*   console.log("[onSchedule] enabled: ", state.enabled, ", trackingMode: ", state.trackingMode);
+* });
+* ```
+*/
+export interface CompactState {
+  /**
+  * Of a `schedule` event, whether the schedule entry which fired started (`true`) or stopped tracking.
+  */
+  enabled: boolean;
+  isMoving: boolean;
+  /**
+  * `1` location tracking;  `0` geofences-only.  Of a `schedule` event, the tracking-mode of the schedule entry which fired.
+  */
+  trackingMode: number;
+  schedulerEnabled: boolean;
+}
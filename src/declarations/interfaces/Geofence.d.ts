@@ -1,5 +1,5 @@
 declare module "react-native-background-geolocation" {
-  type Vertices = number[][];
+  type Vertices = number[][] | number[] | string;
 
   /**
   * The Background Geolocation SDK implements the native iOS and Android Geofencing APIs.
@@ -265,6 +265,10 @@ declare module "react-native-background-geolocation" {
     extras?: Extras;
     /**
      * Optional: a list of vertices (`[ [lat, lng],...]`) defining a Polygon geofence.  By default, geofences are circular.
+     *
+     * [Android only] For large polygons, the vertices may instead be provided in a compact form, which is much cheaper to pass to the native code:
+     * - a flat array `[lat, lng, lat, lng, ...]`
+     * - a [Google encoded-polyline](https://developers.google.com/maps/documentation/utilities/polylinealgorithm) string (precision `1e5`).
      * 
      * ℹ️ __*Polygon Geofencing*__ is [sold as a separate add-on](https://shop.transistorsoft.com/products/polygon-geofencing) (fully functional in *DEBUG* builds).
      *     
@@ -0,0 +1,35 @@
+/**
+* [Android only] Outcome of [[BackgroundGeolocation.importGeofences]].
+*
+* ```typescript
+* let result = await BackgroundGeolocation.importGeofences(path + "/geofences.geojson");
+* console.log("[importGeofences] accepted: ", result.accepted, ", rejected: ", result.rejected);
+* ```
+*/
+export interface GeofenceImportResult {
+  /**
+  * Records (features or CSV rows) read from the file.
+  */
+  total: number;
+  /**
+  * Geofences added.
+  */
+  accepted: number;
+  /**
+  * Records rejected as invalid, or which failed to be added.
+  */
+  rejected: number;
+  /**
+  * The first 100 rejections.
+  */
+  errors: GeofenceImportError[];
+}
+
+export interface GeofenceImportError {
+  /**
+  * 0-based index of the record within the file.
+  */
+  index: number;
+  identifier: string | null;
+  error: string;
+}
@@ -0,0 +1,65 @@
+/**
+* [Android only] Region of [[BackgroundGeolocation.queryGeofences]], answered from a native spatial index:  either a
+* bounding-box or a point and radius.
+*
+* ```typescript
+* // Geofences intersecting a bounding-box.
+* let geofences = await BackgroundGeolocation.queryGeofences({bbox: [-73.7, 45.4, -73.5, 45.6]});
+*
+* // Geofences within 2000 meters of a point, nearest first.
+* let nearest = await BackgroundGeolocation.queryGeofences({latitude: 45.5, longitude: -73.6, radius: 2000, limit: 50});
+* ```
+*/
+export type GeofenceQuery = GeofenceBoundsQuery | GeofenceRadiusQuery;
+
+export interface GeofenceBoundsQuery {
+  /**
+  * `[west, south, east, north]`
+  */
+  bbox: [number, number, number, number];
+  /**
+  * Maximum number of geofences returned.
+  */
+  limit?: number;
+}
+
+export interface GeofenceRadiusQuery {
+  latitude: number;
+  longitude: number;
+  /**
+  * Meters from [[latitude]], [[longitude]].
+  */
+  radius: number;
+  /**
+  * Maximum number of geofences returned, nearest first.
+  */
+  limit?: number;
+}
+
+/**
+* A point tested by [[BackgroundGeolocation.hitTestGeofences]]:  `[latitude, longitude]` or `{latitude, longitude}`.
+*/
+export type GeofenceHitTestPoint = [number, number] | { latitude: number; longitude: number };
+
+/**
+* Geofences removed by [[BackgroundGeolocation.removeGeofences]].  A geofence matching any of the provided criteria is removed.
+*
+* ```typescript
+* BackgroundGeolocation.removeGeofences({prefix: "delivery-"});
+* BackgroundGeolocation.removeGeofences({extras: {zone: "expired"}});
+* ```
+*/
+export interface GeofenceRemoveQuery {
+  /**
+  * Geofences of these identifiers.
+  */
+  identifiers?: string[];
+  /**
+  * [Android only] Geofences whose identifier starts with this prefix.
+  */
+  prefix?: string;
+  /**
+  * [Android only] Geofences whose extras contain every given top-level key, of equal value.
+  */
+  extras?: Record<string, any>;
+}
@@ -0,0 +1,32 @@
+import type { Location, SQLQuery } from '@transistorsoft/background-geolocation-types';
+
+/**
+* [Android only] Query of [[BackgroundGeolocation.getLocationsPage]]:  a [[SQLQuery]] plus the `cursor` of the previous page.
+*
+* ```typescript
+* let page = await BackgroundGeolocation.getLocationsPage({limit: 500});
+* while (page.cursor) {
+*   page = await BackgroundGeolocation.getLocationsPage({limit: 500, cursor: page.cursor});
+* }
+* ```
+*/
+export interface LocationsPageQuery extends SQLQuery {
+  /**
+  * [[LocationsPage.cursor]] of the previous page.  Omit (or `null`) for the first page.
+  */
+  cursor?: string | null;
+}
+
+/**
+* [Android only] A single page of location records, resolved by [[BackgroundGeolocation.getLocationsPage]].
+*/
+export interface LocationsPage {
+  /**
+  * At most [[SQLQuery.limit]] records (default `100`), in [[SQLQuery.order]].
+  */
+  locations: Location[];
+  /**
+  * Provide as [[LocationsPageQuery.cursor]] to fetch the next page.  `null` when there are no more records.
+  */
+  cursor: string | null;
+}
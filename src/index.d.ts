@@ -1,4 +1,3 @@
-
 // 1. Re-export ALL shared types so consumers can do:
 //    import BackgroundGeolocation, { Config, Location, GeofenceEvent } from 'react-native-background-geolocation';
 export * from '@transistorsoft/background-geolocation-types';
@@ -6,8 +5,62 @@ export * from '@transistorsoft/background-geolocation-types';
 // 2. Import the *canonical* BackgroundGeolocation interface from -types.
 import type {
   BackgroundGeolocation as SharedBackgroundGeolocation,
+  Geofence,
 } from '@transistorsoft/background-geolocation-types';
 
-// 3. Alias it as the default export type for this adapter.
-declare const BackgroundGeolocation: SharedBackgroundGeolocation;
-export default BackgroundGeolocation;
\ No newline at end of file
+// 3. Result / query types of this adapter's own methods (see src/declarations/interfaces).
+import type { LocationsPage, LocationsPageQuery } from './declarations/interfaces/LocationsPage';
+import type {
+  GeofenceQuery,
+  GeofenceBoundsQuery,
+  GeofenceRadiusQuery,
+  GeofenceHitTestPoint,
+  GeofenceRemoveQuery,
+} from './declarations/interfaces/GeofenceQuery';
+import type { GeofenceImportResult, GeofenceImportError } from './declarations/interfaces/GeofenceImportResult';
+import type { CompactState } from './declarations/interfaces/CompactState';
+
+export type {
+  LocationsPage,
+  LocationsPageQuery,
+  GeofenceQuery,
+  GeofenceBoundsQuery,
+  GeofenceRadiusQuery,
+  GeofenceHitTestPoint,
+  GeofenceRemoveQuery,
+  GeofenceImportResult,
+  GeofenceImportError,
+  CompactState,
+};
+
+// 4. Methods this adapter adds to the canonical interface.
+export interface BackgroundGeolocationExtensions {
+  /**
+  * [Android only] Fetch one page of location records from the database, rather than all of them.
+  */
+  getLocationsPage(query?: LocationsPageQuery): Promise<LocationsPage>;
+  /**
+  * [Android only] Fetch only the geofences within a region, from a native spatial index.
+  */
+  queryGeofences(query: GeofenceQuery): Promise<Geofence[]>;
+  /**
+  * [Android only] Identifiers of the geofences containing a point.
+  */
+  hitTestGeofences(latitude: number, longitude: number): Promise<string[]>;
+  /**
+  * [Android only] Identifiers of the geofences containing each point, one Array per point.
+  */
+  hitTestGeofences(points: GeofenceHitTestPoint[]): Promise<string[][]>;
+  /**
+  * [Android only] Import geofences from a local GeoJSON or CSV file (format inferred from the extension when omitted).
+  */
+  importGeofences(path: string, format?: "geojson" | "csv"): Promise<GeofenceImportResult>;
+  /**
+  * Remove all geofences, those of the given identifiers, or those matching a [[GeofenceRemoveQuery]].
+  */
+  removeGeofences(query?: string[] | GeofenceRemoveQuery): Promise<boolean>;
+}
+
+// 5. Alias it as the default export type for this adapter.
+declare const BackgroundGeolocation: SharedBackgroundGeolocation & BackgroundGeolocationExtensions;
+export default BackgroundGeolocation;
@@ -27,8 +27,12 @@ import {
   Event
 } from '@transistorsoft/background-geolocation-types';
 
+// Plugin-local events not (yet) declared in @transistorsoft/background-geolocation-types
+const EVENT_LOCATIONBATCH = 'locationbatch';
+
 // Build a lookup table of allowed event names (runtime)
 const VALID_EVENT_NAMES = new Set(Object.values(Event));
+VALID_EVENT_NAMES.add(EVENT_LOCATIONBATCH);
 
 let _deviceSettingsInstance = null;
 
@@ -98,6 +102,7 @@ export default class BackgroundGeolocation {
   static get EVENT_POWERSAVECHANGE()       { return Event.PowerSaveChange; }
   static get EVENT_NOTIFICATIONACTION()    { return Event.NotificationAction; }
   static get EVENT_AUTHORIZATION()         { return Event.Authorization; }
+  static get EVENT_LOCATIONBATCH()         { return EVENT_LOCATIONBATCH; }
 
   static get LOG_LEVEL_OFF()                { return LOG_LEVEL_OFF; }
   static get LOG_LEVEL_ERROR()              { return LOG_LEVEL_ERROR; }
@@ -256,6 +261,13 @@ export default class BackgroundGeolocation {
     return this.addListener(Event.Location, success, failure);
   }
 
+  /**
+  * Receive an Array of locations when batched delivery is enabled with #setLocationBatch
+  */
+  static onLocationBatch(callback) {
+    return this.addListener(EVENT_LOCATIONBATCH, callback);
+  }
+
   static onMotionChange(callback) {
     return this.addListener(Event.MotionChange, callback);
   }
@@ -422,6 +434,69 @@ export default class BackgroundGeolocation {
   static finishHeadlessTask(taskId) {    
     return NativeModule.finishHeadlessTask(taskId);    
   }
+
+  /**
+  * [Android only] Configure the Headless Task.  Options are persisted, applying to future launches of a terminated app.
+  *
+  * Headless events waiting to start (queued while React Native launches, or beyond `maxConcurrentTasks`) start in order of
+  * priority, not arrival:  geofence / motionchange / terminate / boot / schedule first, then the rest, then location / heartbeat /
+  * http last.  Events of the same priority keep their order, but a geofence event may reach your task *before* a location event
+  * recorded earlier.  Order by each event's own `timestamp` (eg: `location.timestamp`) where sequence matters.
+  *
+  * - batch:  Coalesce consecutive location / heartbeat events queued while React Native launches into a single event
+  *   {name: 'batch', params: [event, event, ...]}, in the order they were recorded.  Other events (eg: geofence, terminate)
+  *   are delivered one-at-a-time, by priority (above):  ahead of a batch of earlier locations.
+  * - maxConcurrentTasks:  Maximum number of headless-tasks running at once (default 0:  unlimited).  Waiting tasks start
+  *   in order of priority (above).
+  * - maxBacklog:  Maximum number of waiting headless-tasks (default 0:  unlimited).  Beyond this, the oldest of the lowest-priority
+  *   tasks are dropped.  geofence / motionchange / terminate / boot / schedule are never dropped.
+  * - timeout:  Time-limit (ms) of each headless-task which fails to call finishHeadlessTask (default 120000).
+  * - timeouts:  Time-limit (ms) per event-name, overriding `timeout`, eg: {location: 30000, geofence: 120000}.
+  * - adaptiveTimeout:  Derive each event's time-limit from the observed latency of its headless-tasks (p99 + 10s),
+  *   never exceeding `timeout` / `timeouts`.
+  * - persist:  Journal queued headless events to disk until their headless-task finishes.  Events lost to the app process being
+  *   killed (eg: while React Native launches) are delivered again at the next headless launch.  Your task may therefore
+  *   receive an event more than once.
+  * - compactEvents:  schedule / boot / terminate events (headless, and the `onSchedule` event) carry only
+  *   {enabled, isMoving, trackingMode, schedulerEnabled} rather than the entire state.  Of a schedule event, `enabled` and
+  *   `trackingMode` are those applied by the schedule entry which fired.  Use #getState for the rest.
+  *
+  * configureHeadlessTask({batch: true, maxConcurrentTasks: 2, maxBacklog: 50, timeouts: {location: 30000}, adaptiveTimeout: true})
+  */
+  static configureHeadlessTask(options) {
+    return NativeModule.configureHeadlessTask(options);
+  }
+
+  /**
+  * [Android only] Headless-task scheduler counts:  {running, pending, dropped}
+  */
+  static getHeadlessTaskStats() {
+    return NativeModule.getHeadlessTaskStats();
+  }
+
+  /**
+  * [Android only] Headless-task pipeline metrics since the app process launched.  All durations are milliseconds.
+  *
+  * {
+  *   running, pending, dropped, maxQueueDepth,
+  *   reactContextLaunch: Histogram,  // React Native launch-time (cold-start cost)
+  *   events: {
+  *     location: {
+  *       dropped,
+  *       build: Histogram,  // event received -> task queued
+  *       queue: Histogram,  // task queued -> started in JS
+  *       run: Histogram,    // started in JS -> finished (or timed out)
+  *       total: Histogram   // event received -> finished
+  *     },
+  *     ...
+  *   }
+  * }
+  *
+  * Histogram: {count, sum, min, max, buckets: [upper-bounds], counts: [count per bucket, followed by count beyond the last]}
+  */
+  static getHeadlessMetrics() {
+    return NativeModule.getHeadlessMetrics();
+  }
   /**
   * Toggle motion-state between stationary <-> moving
   */
@@ -431,6 +506,11 @@ export default class BackgroundGeolocation {
 
   /**
   * Provide new configuration to the plugin.  This configuration will be *merged* to current configuration
+  *
+  * [Android only] Only the keys whose values differ from the current configuration are applied (nothing is persisted
+  * when none do).  Provide `delta: true` to resolve only those changed keys rather than the entire state, eg:
+  *
+  * setConfig({distanceFilter: 50, stopTimeout: 5, delta: true})  // -> {distanceFilter: 50} when stopTimeout was already 5
   */
   static setConfig(config) {
     return NativeModule.setConfig(config);
@@ -443,6 +523,20 @@ export default class BackgroundGeolocation {
     return NativeModule.getLocations();
   }
 
+  /**
+  * [Android only] Fetch one page of location records from database, rather than all of them.
+  * Accepts a SQLQuery {start, end, order, limit} plus the `cursor` returned by the previous page.
+  * Resolves {locations: Location[], cursor: string|null}, where a null cursor means no more records.
+  *
+  * let page = await BackgroundGeolocation.getLocationsPage({limit: 500});
+  * while (page.cursor) {
+  *   page = await BackgroundGeolocation.getLocationsPage({limit: 500, cursor: page.cursor});
+  * }
+  */
+  static getLocationsPage(query) {
+    return NativeModule.getLocationsPage(query);
+  }
+
   /**
   * Fetch the current count of location records in database
   */
@@ -483,6 +577,17 @@ export default class BackgroundGeolocation {
     return NativeModule.sync();
   }
 
+  /**
+  * [Android only] Deliver locations in batches rather than one event per fix.
+  * While enabled, locations are delivered to #onLocationBatch (instead of #onLocation) once `maxSize` records
+  * have accumulated or `maxWait` ms have elapsed.  Batches are flushed early on motionchange.
+  *
+  * setLocationBatch({enabled: true, maxSize: 10, maxWait: 30000})
+  */
+  static setLocationBatch(options) {
+    return NativeModule.setLocationBatch(options);
+  }
+
   /**
   * Fetch the current value of odometer
   */
@@ -528,15 +633,51 @@ export default class BackgroundGeolocation {
   }
 
   /**
-  * Remove geofences.  You may either supply an array of identifiers or nothing to destroy all geofences.
+  * Add a large list of geofences in bounded slices of `chunkSize` (default 500), one slice in flight at a time.
+  * Unlike #addGeofences, an invalid geofence is rejected alone:  the rest are still added.
+  *
+  * - chunkSize:  Geofences per slice.
+  * - onProgress:  Called after each slice with {processed, total, accepted, rejected}.
+  *
+  * Resolves {total, accepted, rejected, results}, where results holds one {identifier, success, error} per geofence, in order.
+  *
+  * addGeofencesChunked(stores, {chunkSize: 1000, onProgress: ({processed, total}) => console.log(processed + '/' + total)})
+  */
+  static addGeofencesChunked(geofences, options) {
+    return NativeModule.addGeofencesChunked(geofences, options);
+  }
+
+  /**
+  * [Android only] Import geofences from a local file, parsed natively and added in batches:  the file's contents never
+  * cross the bridge.
+  *
+  * - format 'geojson':  a FeatureCollection of Point or Polygon features.  Feature properties provide identifier (else the
+  *   feature id), radius (required for a Point), notifyOnEntry, notifyOnExit, notifyOnDwell, loiteringDelay;  other
+  *   properties become the geofence extras.
+  * - format 'csv':  a header row naming columns identifier, latitude, longitude, radius, notifyOnEntry, notifyOnExit,
+  *   notifyOnDwell, loiteringDelay, vertices (an encoded-polyline);  other columns become extras.
+  *
+  * When format is omitted, it's inferred from the file extension (.csv, else GeoJSON).
+  * Resolves {total, accepted, rejected, errors: [{index, identifier, error}]} (the first 100 errors).
+  *
+  * importGeofences(documentsPath + '/geofences.geojson').then(({accepted, rejected}) => ...)
+  */
+  static importGeofences(path, format) {
+    return NativeModule.importGeofences(path, format);
+  }
+
+  /**
+  * Remove geofences in a single native operation.  Supply nothing to destroy all geofences, an array of identifiers,
+  * or a query selecting geofences by identifier prefix and/or extras:
   * 1. removeGeofences() <-- Promise
-  * 2. removeGeofences(['foo'])  <-- Promise
+  * 2. removeGeofences(['foo', 'bar'])  <-- Promise
+  * 3. removeGeofences({prefix: 'delivery-'})  <-- identifiers starting with 'delivery-'
+  * 4. removeGeofences({extras: {zone: 'expired'}})  <-- extras containing every given key-value
   *
-  * 3. removeGeofences(success, [failure])
-  * 4. removeGeofences(['foo'], success, [failure])
+  * A query's identifiers, prefix and extras may be combined:  a geofence matching any of them is removed.
   */
-  static removeGeofences() {
-    return NativeModule.removeGeofences();    
+  static removeGeofences(query) {
+    return NativeModule.removeGeofences(query);
   }
   
   /**
@@ -547,6 +688,28 @@ export default class BackgroundGeolocation {
 
   }
   /**
+  * [Android only] Fetch only the geofences within a region, from a native spatial index (rather than all via #getGeofences).
+  *
+  * - {bbox: [west, south, east, north], limit}:  geofences intersecting the bounding-box.
+  * - {latitude, longitude, radius, limit}:  geofences within `radius` meters of the point, nearest first.
+  *
+  * queryGeofences({latitude: 45.5, longitude: -73.6, radius: 2000, limit: 50})
+  */
+  static queryGeofences(query) {
+    return NativeModule.queryGeofences(query);
+  }
+  /**
+  * [Android only] Return the identifiers of the geofences containing a point (inside its polygon or circle).
+  * Pass an Array of points ([lat, lng] or {latitude, longitude}) to test a batch in one call:  resolves an Array of
+  * identifier Arrays, one per point.
+  *
+  * hitTestGeofences(45.5, -73.6)
+  * hitTestGeofences([[45.5, -73.6], {latitude: 45.51, longitude: -73.62}])
+  */
+  static hitTestGeofences(latitude, longitude) {
+    return NativeModule.hitTestGeofences(latitude, longitude);
+  }
+  /**
   * Fetch a single geofence
   */
   static getGeofence(identifier) {
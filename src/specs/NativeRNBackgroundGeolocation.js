@@ -27,8 +27,11 @@ export interface Spec extends TurboModule {
   +changePace: (moving: boolean) => Promise<boolean>;
   +getState: () => Promise<Object>;
 
+  +setLocationBatch: (options: Object) => Promise<boolean>;
+
   // Locations / persistence
   +getLocations: () => Promise<Array<Object>>;
+  +getLocationsPage: (query: Object) => Promise<Object>;
   +getCount: () => Promise<Int32>;
   +insertLocation: (params: Object) => Promise<string>;
 
@@ -52,16 +55,23 @@ export interface Spec extends TurboModule {
   // Geofences
   +addGeofence: (config: Object) => Promise<boolean>;
   +addGeofences: (geofences: Array<Object>) => Promise<boolean>;
+  +addGeofencesChunk: (geofences: Array<Object>) => Promise<Array<Object>>;
+  +importGeofences: (path: string, format: ?string) => Promise<Object>;
   +removeGeofence: (identifier: string) => Promise<boolean>;
-  +removeGeofences: () => Promise<boolean>;
+  +removeGeofences: (query: Object) => Promise<boolean>;
   +getGeofences: () => Promise<Array<Object>>;
   +getGeofence: (identifier: string) => Promise<Object>;
+  +queryGeofences: (query: Object) => Promise<Array<Object>>;
+  +hitTestGeofences: (points: Array<number>) => Promise<Array<Array<string>>>;
   +geofenceExists: (identifier: string) => Promise<boolean>;
 
   // Background tasks
   +beginBackgroundTask: () => Promise<Int32>;
   +finish: (taskId: Int32) => Promise<Int32>;
   +finishHeadlessTask: (taskId: Int32) => Promise<boolean>;
+  +configureHeadlessTask: (options: Object) => Promise<boolean>;
+  +getHeadlessTaskStats: () => Promise<Object>;
+  +getHeadlessMetrics: () => Promise<Object>;
 
   // Transistor auth token
   +getTransistorToken: (
@@ -96,6 +106,9 @@ export interface Spec extends TurboModule {
   // Required by NativeEventEmitter
   +addListener: (eventName: string) => void;
   +removeListeners: (count: Int32) => void;
+
+  // Decrement the native listener-count of a single event (Android skips events having no listeners).
+  +removeListener: (eventName: string) => void;
 }
 
 // Default export used by RN at runtime (for Turbo path).
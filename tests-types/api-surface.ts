@@ -0,0 +1,28 @@
+import BackgroundGeolocation, {
+  type LocationsPage,
+  type GeofenceImportResult,
+  type Geofence,
+} from 'react-native-background-geolocation';
+
+async function surface() {
+  let page: LocationsPage = await BackgroundGeolocation.getLocationsPage({ limit: 500 });
+  while (page.cursor) {
+    page = await BackgroundGeolocation.getLocationsPage({ limit: 500, cursor: page.cursor });
+  }
+
+  const inBounds: Geofence[] = await BackgroundGeolocation.queryGeofences({ bbox: [-73.7, 45.4, -73.5, 45.6] });
+  const nearest: Geofence[] = await BackgroundGeolocation.queryGeofences({ latitude: 45.5, longitude: -73.6, radius: 2000, limit: 50 });
+
+  const hits: string[] = await BackgroundGeolocation.hitTestGeofences(45.5, -73.6);
+  const batch: string[][] = await BackgroundGeolocation.hitTestGeofences([[45.5, -73.6], { latitude: 45.51, longitude: -73.62 }]);
+
+  const result: GeofenceImportResult = await BackgroundGeolocation.importGeofences('/data/geofences.csv', 'csv');
+  result.errors.forEach(({ index, identifier, error }) => console.log(index, identifier, error));
+
+  await BackgroundGeolocation.removeGeofences({ prefix: 'delivery-', extras: { zone: 'expired' } });
+  await BackgroundGeolocation.removeGeofences(['foo', 'bar']);
+
+  return [inBounds, nearest, hits, batch];
+}
+
+surface();
@@ -0,0 +1,29 @@
+const { NativeModules } = require('react-native');
+const NativeModule = require('../src/NativeModule').default;
+
+// Android reference-counts listeners per-event to skip marshalling events nobody listens to.
+// RN only reports a count to native #removeListeners, so each Subscription.remove() must name its event.
+test('Subscription.remove() decrements the native listener-count of its event', () => {
+  const spy = jest.spyOn(NativeModules.RNBackgroundGeolocation, 'removeListener');
+
+  const subscription = NativeModule.addListener('location', jest.fn());
+  expect(spy).not.toHaveBeenCalled();
+
+  subscription.remove();
+  expect(spy).toHaveBeenCalledTimes(1);
+  expect(spy).toHaveBeenCalledWith('location');
+
+  spy.mockRestore();
+});
+
+test('removeListeners() decrements each removed event', async () => {
+  const spy = jest.spyOn(NativeModules.RNBackgroundGeolocation, 'removeListener');
+
+  NativeModule.addListener('location', jest.fn());
+  NativeModule.addListener('motionchange', jest.fn());
+  await NativeModule.removeListeners();
+
+  expect(spy.mock.calls.map(([event]) => event).sort()).toEqual(['location', 'motionchange']);
+
+  spy.mockRestore();
+});